@@ -35,7 +35,7 @@ public abstract class AbstractDescriptor extends BuildStepDescriptor<Builder> {
 			return items;
 		}
 		
-		OpenShiftV2Client client = new OpenShiftV2Client(server.getBrokerAddress(), server.getUsername(), server.getPassword());
+		OpenShiftV2Client client = new OpenShiftV2Client(server);
 		for (String domain : client.getDomains()) {
 			items.add(domain, domain);
 		}
@@ -0,0 +1,323 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.jenkinsci.plugins.openshift.GitClient.PackMode;
+import org.jenkinsci.plugins.openshift.OpenShiftV2Client.DeploymentType;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+import com.openshift.client.ApplicationScale;
+import com.openshift.client.IApplication;
+
+/**
+ * Pushes deployment packages which are already staged on the master to an application.
+ * Shared by the {@link DeployApplication} build step and the {@link DeployApplicationStep}
+ * pipeline step.
+ */
+class ApplicationDeployer {
+	private Logger log = Logger.NOOP;
+
+	private IApplication app;
+
+	private DeploymentType deploymentType;
+
+	private String cartridges;
+
+	private PackMode packMode = PackMode.DEFAULT;
+
+	private int packThreads;
+
+	private boolean explodeArchives;
+
+	private boolean hotSync;
+
+	private boolean parallelGears;
+
+	private int gearBatchSize;
+
+	private FilePath dotOpenshiftSource;
+
+	private ReadinessCheck readinessCheck;
+
+	private long readinessTimeout;
+
+	private long timeToReady = -1;
+
+	private final DeployTimings timings = new DeployTimings();
+
+	private OpenShiftV2Client preScaleClient;
+
+	private String preScaleDomain;
+
+	private int preScaleGears;
+
+	private String serverName = "";
+
+	public ApplicationDeployer(IApplication app, DeploymentType deploymentType, String cartridges) {
+		this.app = app;
+		this.deploymentType = deploymentType;
+		this.cartridges = cartridges;
+	}
+
+	public void setLogger(Logger log) {
+		this.log = log;
+	}
+
+	/**
+	 * @param serverName the server of the application, labels the git and SSH metrics
+	 */
+	public void setServerName(String serverName) {
+		this.serverName = serverName;
+	}
+
+	/**
+	 * Pack settings for git deployments, see {@link GitClient#setPackMode(PackMode)}
+	 */
+	public void setPackOptions(PackMode packMode, int packThreads) {
+		this.packMode = packMode;
+		this.packThreads = packThreads;
+	}
+
+	/**
+	 * Commit the contents of WAR and EAR files for git deployments, see {@link GitClient#setExplodeArchives(boolean)}
+	 */
+	public void setExplodeArchives(boolean explodeArchives) {
+		this.explodeArchives = explodeArchives;
+	}
+
+	/**
+	 * Update the running application in place instead of a git deployment, see {@link HotSync}
+	 */
+	public void setHotSync(boolean hotSync) {
+		this.hotSync = hotSync;
+	}
+
+	/**
+	 * Deploy binary deployments of scaled applications to every web gear directly, see {@link GearRollout}
+	 *
+	 * @param gearBatchSize gears deployed concurrently, 0 for all at once
+	 */
+	public void setParallelGears(boolean parallelGears, int gearBatchSize) {
+		this.parallelGears = parallelGears;
+		this.gearBatchSize = gearBatchSize;
+	}
+
+	/**
+	 * The .openshift directory for git deployments where it was configured, possibly on a slave
+	 * node. Only changed files are copied, see {@link DotOpenshiftSync}.
+	 */
+	public void setDotOpenshiftSource(FilePath dotOpenshiftSource) {
+		this.dotOpenshiftSource = dotOpenshiftSource;
+	}
+
+	/**
+	 * Raise the minimum scale of a scaled application before the deployment and restore its scale
+	 * once it is done, so the restart of the gears during the deployment doesn't reduce the capacity
+	 * of the application.
+	 *
+	 * @param client the client which looked up the application
+	 * @param domain the domain of the application
+	 * @param gears gears to add, 0 to deploy without adding gears
+	 */
+	public void setPreScale(OpenShiftV2Client client, String domain, int gears) {
+		this.preScaleClient = client;
+		this.preScaleDomain = domain;
+		this.preScaleGears = gears;
+	}
+
+	/**
+	 * Wait for the application to respond after the deployment, see {@link ReadinessCheck}
+	 *
+	 * @param checks one check per line, none if empty
+	 * @param timeoutSeconds the deployment fails if the application isn't ready by then
+	 */
+	public void setReadinessCheck(String checks, int timeoutSeconds) {
+		this.readinessCheck = new ReadinessCheck(checks);
+		this.readinessTimeout = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+	}
+
+	/**
+	 * @return ms from the end of the deployment until the readiness checks passed, -1 if there are no checks
+	 */
+	public long getTimeToReady() {
+		return timeToReady;
+	}
+
+	/**
+	 * @return the time of the deploy and ready phases and the size of the deployed packages
+	 */
+	public DeployTimings getTimings() {
+		return timings;
+	}
+
+	/**
+	 * @param localDeployments packages on the master node
+	 * @param baseDir the working directory on the master node
+	 * @param dotOpenshiftDir absolute path to the .openshift directory on the master node or null
+	 * @param commitMsg git commit message
+	 */
+	public void deploy(List<String> localDeployments, File baseDir, String dotOpenshiftDir, String commitMsg)
+			throws IOException, GitAPIException {
+		timings.setBytes(DeployTimings.sizeOf(localDeployments));
+		long start = System.currentTimeMillis();
+		OpenShiftV2Client.Scale originalScale = preScale();
+		try {
+			if (deploymentType == DeploymentType.BINARY) {
+				binaryDeploy(localDeployments, dotOpenshiftDir);
+			} else if (hotSync) {
+				hotSync(localDeployments, baseDir);
+			} else {
+				gitDeploy(localDeployments, baseDir, dotOpenshiftDir, commitMsg);
+			}
+
+			timings.add(DeployTimings.DEPLOY, System.currentTimeMillis() - start);
+			log.info("Application deployed to " + app.getApplicationUrl());
+
+			if (readinessCheck != null && !readinessCheck.isEmpty()) {
+				readinessCheck.setLogger(log);
+				timeToReady = readinessCheck.await(app.getApplicationUrl(), readinessTimeout);
+				timings.add(DeployTimings.READY, timeToReady);
+				Metrics.add("openshift_time_to_ready_millis_total", timeToReady, "app", app.getName());
+				Metrics.increment("openshift_time_to_ready_total", "app", app.getName());
+			}
+		} finally {
+			if (originalScale != null) {
+				restoreScale(originalScale);
+			}
+		}
+	}
+
+	/**
+	 * Raise the minimum scale of the web cartridge above its current number of gears. The maximum is
+	 * raised as well if it is lower than the new minimum.
+	 *
+	 * @return the scale to restore after the deployment, or null if the scale wasn't changed
+	 */
+	private OpenShiftV2Client.Scale preScale() {
+		if (preScaleGears <= 0) {
+			return null;
+		}
+
+		if (app.getApplicationScale() != ApplicationScale.SCALE) {
+			log.info("Application '" + app.getName() + "' is not scaled. Deploying without adding gears.");
+			return null;
+		}
+
+		long start = System.currentTimeMillis();
+		OpenShiftV2Client.Scale original;
+		try {
+			original = preScaleClient.getScale(app, preScaleDomain);
+		} catch (RuntimeException e) {
+			log.error("Failed to get the scale of '" + app.getName() + "': " + e.getMessage() + ". Deploying without adding gears.");
+			return null;
+		}
+
+		int min = original.getCurrent() + preScaleGears;
+		int max = original.getMax() < 0 ? original.getMax() : Math.max(original.getMax(), min);
+		OpenShiftV2Client.Scale raised = new OpenShiftV2Client.Scale(min, max, original.getCurrent());
+		log.info("Scaling '" + app.getName() + "' from " + original + " to " + raised + " for the deployment");
+		try {
+			preScaleClient.setScale(app, preScaleDomain, raised);
+		} catch (RuntimeException e) {
+			// the broker may have added some of the gears before it failed, e.g. at the gear limit
+			log.error("Failed to add gears to '" + app.getName() + "': " + e.getMessage() + ". Deploying with the gears it has.");
+			restoreScale(original);
+			return null;
+		}
+
+		log.info("Added " + preScaleGears + " gears in " + (System.currentTimeMillis() - start) + " ms");
+		Metrics.add("openshift_gears_prescaled_total", preScaleGears, "server", serverName);
+		return original;
+	}
+
+	/**
+	 * Failures are logged, so restoring the scale never hides the outcome of the deployment.
+	 */
+	private void restoreScale(OpenShiftV2Client.Scale original) {
+		log.info("Restoring the scale of '" + app.getName() + "' to " + original);
+		try {
+			preScaleClient.setScale(app, preScaleDomain, original);
+		} catch (RuntimeException e) {
+			log.error("Failed to restore the scale of '" + app.getName() + "' to " + original + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A prebuilt tar.gz is sent as it is. WAR and EAR files are packed into a binary deployment
+	 * archive on the fly.
+	 */
+	private void binaryDeploy(List<String> localDeployments, String dotOpenshiftDir) throws IOException {
+		// reconfigure app for binary deploy
+		if (!app.getDeploymentType().equalsIgnoreCase(DeploymentType.BINARY.name())) {
+			app.setDeploymentType(DeploymentType.BINARY.toString().toLowerCase());
+		}
+
+		SSHClient.Payload payload;
+		if (BinaryArchive.isNeeded(localDeployments)) {
+			File dotOpenshift = dotOpenshiftDir == null ? null : new File(dotOpenshiftDir);
+			payload = new BinaryArchive(localDeployments, getRelativeDeployPath().substring(1), dotOpenshift);
+		} else {
+			payload = SSHClient.filePayload(new File(localDeployments.get(0)));
+		}
+
+		if (parallelGears && app.getApplicationScale() == ApplicationScale.SCALE) {
+			GearRollout rollout = new GearRollout(app, gearBatchSize);
+			rollout.setLogger(log);
+			rollout.setServerName(serverName);
+			rollout.deploy(payload);
+		} else {
+			SSHClient sshClient = new SSHClient(app);
+			sshClient.setLogger(log);
+			sshClient.setSSHPrivateKey(Utils.getSSHPrivateKey());
+			sshClient.setServerName(serverName);
+			sshClient.deploy(payload);
+		}
+	}
+
+	private void hotSync(List<String> localDeployments, File baseDir) throws IOException {
+		SSHClient sshClient = new SSHClient(app);
+		sshClient.setLogger(log);
+		sshClient.setSSHPrivateKey(Utils.getSSHPrivateKey());
+		sshClient.setServerName(serverName);
+
+		HotSync hotSync = new HotSync(sshClient, cartridges);
+		hotSync.setLogger(log);
+		hotSync.sync(localDeployments, new File(baseDir, "exploded"));
+	}
+
+	/**
+	 * @return the deployment directory based on cartridge type
+	 */
+	private String getRelativeDeployPath() {
+		if (cartridges.contains("jbossews")) {
+			return "/webapps"; // tomcat
+		} else {
+			return "/deployments"; // jboss/wildfly
+		}
+	}
+
+	private void gitDeploy(List<String> localDeployments, File baseDir, String dotOpenshiftDir, String commitMsg)
+			throws IOException, GitAPIException {
+		String relativeDeployPath = getRelativeDeployPath();
+
+		// set git base dir
+		File gitBaseDir = new File(baseDir, "git");
+
+		GitClient gitClient = new GitClient(app);
+		gitClient.setLogger(log);
+		gitClient.setServerName(serverName);
+		gitClient.setPackMode(packMode);
+		gitClient.setPackThreads(packThreads);
+		gitClient.setExplodeArchives(explodeArchives);
+		gitClient.setDotOpenshiftSource(dotOpenshiftSource);
+		gitClient.deploy(localDeployments, gitBaseDir, relativeDeployPath, commitMsg, dotOpenshiftDir);
+	}
+}
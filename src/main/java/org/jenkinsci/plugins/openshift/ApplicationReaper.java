@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.openshift.util.JenkinsLogger;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+import com.openshift.client.IApplication;
+
+/**
+ * Deletes applications matching the reaper rules of the global settings which haven't been deployed
+ * for longer than the rule allows. Deletions run on the {@link PendingDeletions} executor and are
+ * subject to the broker limits of the server. Rules in dry-run mode only report the applications to
+ * the log of this task.
+ *
+ * A claimed standby application matches by the name it was claimed for. Its last deployment is
+ * recorded under its own name, so the age is looked up by that.
+ */
+@Extension
+public class ApplicationReaper extends AsyncPeriodicWork {
+	public ApplicationReaper() {
+		super("OpenShift application reaper");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return TimeUnit.HOURS.toMillis(1);
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		for (ReaperRule rule : Utils.getReaperRules()) {
+			reap(rule, new JenkinsLogger(listener));
+		}
+	}
+
+	void reap(ReaperRule rule, Logger log) {
+		Server server = Utils.findServer(rule.getServerName());
+		if (server == null) {
+			log.error("OpenShift server '" + rule.getServerName() + "' of a reaper rule doesn't exist");
+			return;
+		}
+
+		try {
+			OpenShiftV2Client client = new OpenShiftV2Client(server);
+			client.setLogger(log);
+
+			List<String> domains = "*".equals(rule.getDomains().trim())
+					? client.getDomains() : Arrays.asList(rule.getDomains().trim().split("[\\s,]+"));
+			long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(rule.getTtlHours());
+			int apps = 0, gears = 0, stale = 0, deleted = 0;
+
+			for (String domain : domains) {
+				Map<String, String> requestedNames = StandbyPool.get().getRequestedNames(server.getName(), domain);
+				List<IApplication> candidates = new ArrayList<IApplication>();
+				for (IApplication app : client.findApps(domain, StandbyPool.withClaims(rule.toPattern(), requestedNames))) {
+					apps++;
+					gears += client.countGears(app);
+
+					if (StandbyPool.get().isIdleStandby(server.getName(), domain, app.getName())) {
+						continue;
+					}
+
+					long lastDeployed = LastDeployments.get().getOrRecord(server.getName(), domain, app.getName());
+					if (lastDeployed < cutoff) {
+						stale++;
+						String claimedFor = requestedNames.containsKey(app.getName()) ? " (claimed for '" + requestedNames.get(app.getName()) + "')" : "";
+						log.info((rule.isDryRun() ? "[dry-run] Would delete '" : "Deleting '") + app.getName() + "'" + claimedFor + " in domain '" + domain
+								+ "', last deployed " + TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis() - lastDeployed) + " hours ago");
+						candidates.add(app);
+					}
+				}
+
+				if (rule.isDryRun()) {
+					continue;
+				}
+
+				// a client without the task log, which is closed when this run finishes
+				OpenShiftV2Client deletionClient = new OpenShiftV2Client(server);
+				for (IApplication app : candidates) {
+					if (deleted >= rule.getMaxDeletions()) {
+						log.info("Reached the limit of " + rule.getMaxDeletions() + " deletions per run. '" + app.getName() + "' is left for the next run");
+						continue;
+					}
+
+					PendingDeletions.get().submit(deletionClient, server.getName(), app, domain, "Application reaper");
+					deleted++;
+				}
+			}
+
+			log.info("Server '" + server.getName() + "': " + apps + " applications on " + gears + " gears match, "
+					+ stale + " stale, " + deleted + " submitted for deletion");
+			Metrics.set("openshift_reaper_applications", apps, "server", server.getName(), "rule", rule.getAppNamePattern());
+			Metrics.set("openshift_reaper_gears", gears, "server", server.getName(), "rule", rule.getAppNamePattern());
+			Metrics.set("openshift_reaper_stale_applications", stale, "server", server.getName(), "rule", rule.getAppNamePattern());
+			Metrics.add("openshift_reaper_deletions_total", deleted, "server", server.getName(), "rule", rule.getAppNamePattern());
+		} catch (RuntimeException e) {
+			log.error("Failed to reap applications on '" + server.getName() + "': " + e.getMessage());
+		}
+	}
+}
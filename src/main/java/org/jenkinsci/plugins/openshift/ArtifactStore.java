@@ -0,0 +1,288 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.jenkinsci.plugins.openshift.util.Utils.log;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.openshift.util.FileStaging;
+import org.jenkinsci.plugins.openshift.util.Fingerprints;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+
+/**
+ * Deployment packages staged on the master, shared by all jobs and builds. Packages are stored
+ * under the {@link Fingerprints fingerprint} of their content in <code>$JENKINS_HOME/openshift-deployer/artifacts/&lt;digest&gt;/&lt;file name&gt;</code>.
+ * The digest is computed on the node where the package was built, so a package which is already
+ * in the store isn't transferred again.
+ *
+ * Deployments hold a {@link Lease} on the packages they use. {@link ArtifactStoreEviction} removes
+ * the least recently used packages without a lease when the store exceeds its quota.
+ */
+public final class ArtifactStore {
+	private static final Logger LOG = Logger.getLogger(ArtifactStore.class.getName());
+
+	private static final String EVICTED = ".evicted-";
+
+	private static ArtifactStore instance;
+
+	private final File root;
+
+	private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+	ArtifactStore(File root) {
+		this.root = root;
+	}
+
+	public static synchronized ArtifactStore get() {
+		if (instance == null) {
+			instance = new ArtifactStore(new File(Jenkins.getInstance().getRootDir(), "openshift-deployer/artifacts"));
+		}
+		return instance;
+	}
+
+	/**
+	 * Stage a package from a node in the store unless it's there already.
+	 *
+	 * @param channel the channel to the node where the package resides
+	 * @param path the path of the package on the node
+	 * @return a lease on the package, to be released when the deployment is done
+	 */
+	public Lease stage(VirtualChannel channel, String path, TaskListener listener) throws IOException {
+		FilePath source = new FilePath(channel, path);
+		String name = source.getName();
+
+		String digest;
+		try {
+			digest = source.act(new Fingerprints.Digest());
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while computing the digest of " + path, e);
+		}
+
+		Lease lease = lookup(digest, name);
+		if (lease != null) {
+			Metrics.increment("openshift_artifact_store_hits_total");
+			log(listener, "Deployment '" + name + "' found in the artifact store (fingerprint " + digest + ")");
+			return lease;
+		}
+
+		Metrics.increment("openshift_artifact_store_misses_total");
+		log(listener, "Copying the deployment '" + name + "' from slave node to the artifact store (fingerprint " + digest + ")");
+
+		// copy next to the final location and move it in place, so that readers never see a partial file
+		File tmpDir = new File(root, digest + ".tmp-" + UUID.randomUUID());
+		File tmpFile = new File(tmpDir, name);
+		tmpDir.mkdirs();
+		try {
+			source.copyTo(new FilePath(tmpFile));
+
+			String copied = Fingerprints.digest(tmpFile);
+			if (!copied.equals(digest)) {
+				throw new IOException("Deployment '" + name + "' changed while it was copied");
+			}
+
+			synchronized (this) {
+				File file = new File(new File(root, digest), name);
+				publish(tmpFile, file);
+				return acquire(digest, file);
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while copying " + path, e);
+		} finally {
+			FileUtils.deleteQuietly(tmpDir);
+		}
+	}
+
+	/**
+	 * @return a lease on the package with the given digest and name or null if the store doesn't have it
+	 */
+	public Lease lookup(String digest, String name) throws IOException {
+		File file;
+		File source;
+		Lease lease;
+		synchronized (this) {
+			File dir = new File(root, digest);
+			File[] files = dir.listFiles();
+			if (files == null || files.length == 0) {
+				return null;
+			}
+
+			// the lease keeps the package from being evicted while it's copied
+			file = new File(dir, name);
+			lease = acquire(digest, file);
+			if (file.exists()) {
+				return lease;
+			}
+			source = files[0];
+		}
+
+		// same content under another name, the deployers derive the context path from the name
+		File tmpDir = new File(root, digest + ".tmp-" + UUID.randomUUID());
+		try {
+			File tmpFile = new File(tmpDir, name);
+			FileStaging.stage(source, tmpFile);
+			publish(tmpFile, file);
+			return lease;
+		} catch (IOException e) {
+			lease.release();
+			throw e;
+		} finally {
+			FileUtils.deleteQuietly(tmpDir);
+		}
+	}
+
+	/**
+	 * Move a completely copied package to its place in the store, unless a concurrent deployment
+	 * was faster, so that readers never see a partial file.
+	 */
+	private synchronized void publish(File tmpFile, File file) throws IOException {
+		if (!file.exists()) {
+			file.getParentFile().mkdirs();
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Failed to move " + tmpFile + " to " + file);
+			}
+		}
+	}
+
+	private synchronized Lease acquire(String digest, File file) {
+		Integer count = references.get(digest);
+		references.put(digest, count == null ? 1 : count + 1);
+
+		// the modification time of the directory is the time of last use
+		file.getParentFile().setLastModified(System.currentTimeMillis());
+
+		return new Lease(digest, file);
+	}
+
+	private synchronized void release(String digest) {
+		Integer count = references.get(digest);
+		if (count == null || count <= 1) {
+			references.remove(digest);
+		} else {
+			references.put(digest, count - 1);
+		}
+	}
+
+	/**
+	 * Remove the least recently used packages without a lease until the store fits into the quota.
+	 * Leftovers of interrupted copies are removed too. The packages to remove are only chosen and
+	 * moved aside while holding the lock. Measuring and deleting them happens outside of it, so
+	 * deployments aren't blocked.
+	 *
+	 * @param quota max size of the store in bytes
+	 * @return the number of bytes removed
+	 */
+	public long evict(long quota) {
+		File[] dirs = root.listFiles();
+		if (dirs == null) {
+			return 0;
+		}
+
+		long removed = 0;
+		long total = 0;
+		Map<File, Long> sizes = new HashMap<File, Long>();
+		for (File dir : dirs) {
+			if (dir.getName().contains(EVICTED)) {
+				removed += delete(dir); // left over by an interrupted eviction
+				continue;
+			}
+
+			if (dir.getName().contains(".tmp-")) {
+				if (System.currentTimeMillis() - dir.lastModified() > 24 * 60 * 60 * 1000) {
+					removed += delete(dir);
+				}
+				continue;
+			}
+
+			long size = FileUtils.sizeOfDirectory(dir);
+			sizes.put(dir, size);
+			total += size;
+		}
+
+		Map<File, Long> evicted = new HashMap<File, Long>();
+		synchronized (this) {
+			List<File> lru = new ArrayList<File>();
+			for (File dir : sizes.keySet()) {
+				if (!references.containsKey(dir.getName())) {
+					lru.add(dir);
+				}
+			}
+			Collections.sort(lru, new Comparator<File>() {
+				public int compare(File f1, File f2) {
+					return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
+				}
+			});
+
+			for (File dir : lru) {
+				if (total <= quota) {
+					break;
+				}
+
+				// once moved aside, lookups miss the package instead of leasing a package being deleted
+				File aside = new File(root, dir.getName() + EVICTED + UUID.randomUUID());
+				if (dir.renameTo(aside)) {
+					evicted.put(aside, sizes.get(dir));
+					total -= sizes.get(dir);
+				}
+			}
+		}
+
+		for (Map.Entry<File, Long> dir : evicted.entrySet()) {
+			FileUtils.deleteQuietly(dir.getKey());
+			LOG.fine("Evicted " + dir.getKey().getName().substring(0, dir.getKey().getName().indexOf(EVICTED)) + " from the artifact store");
+			removed += dir.getValue();
+		}
+
+		Metrics.set("openshift_artifact_store_bytes", total);
+		Metrics.add("openshift_artifact_store_evicted_bytes_total", removed);
+		return removed;
+	}
+
+	private static long delete(File dir) {
+		long size = FileUtils.sizeOfDirectory(dir);
+		FileUtils.deleteQuietly(dir);
+		return size;
+	}
+
+	/**
+	 * A reference to a package in the store. The package is not evicted while it is leased.
+	 */
+	public final class Lease {
+		private final String digest;
+		private final File file;
+		private boolean released;
+
+		private Lease(String digest, File file) {
+			this.digest = digest;
+			this.file = file;
+		}
+
+		public String getDigest() {
+			return digest;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public synchronized void release() {
+			if (!released) {
+				released = true;
+				ArtifactStore.this.release(digest);
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+/**
+ * Keeps the {@link ArtifactStore} within the quota configured in the global settings.
+ */
+@Extension
+public class ArtifactStoreEviction extends AsyncPeriodicWork {
+	public ArtifactStoreEviction() {
+		super("OpenShift artifact store eviction");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return TimeUnit.MINUTES.toMillis(10);
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		long removed = ArtifactStore.get().evict(Utils.getArtifactStoreQuota());
+		if (removed > 0) {
+			listener.getLogger().println("Evicted " + FileUtils.byteCountToDisplaySize(removed) + " from the artifact store");
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.jenkinsci.plugins.openshift.util.ParallelGzipOutputStream;
+
+/**
+ * Assembles a binary deployment archive from WAR and EAR files while it is sent, so no tar.gz
+ * needs to be built in the workspace or written to disk. The layout is the one OpenShift expects
+ * for binary deployments:
+ *
+ * <pre>
+ * dependencies/
+ * build-dependencies/
+ * repo/.openshift/...
+ * repo/deployments/ROOT.war   (repo/webapps/ROOT.war for jbossews)
+ * </pre>
+ */
+class BinaryArchive implements SSHClient.Payload {
+	private final List<String> deployments;
+
+	private final String relativeDeployDir;
+
+	private final File dotOpenshiftDir;
+
+	/**
+	 * @param deployments WAR and EAR files on the master node
+	 * @param relativeDeployDir the deployment directory in the repo e.g. "deployments"
+	 * @param dotOpenshiftDir the .openshift directory, a directory containing it, or null
+	 */
+	public BinaryArchive(List<String> deployments, String relativeDeployDir, File dotOpenshiftDir) {
+		this.deployments = deployments;
+		this.relativeDeployDir = relativeDeployDir;
+		this.dotOpenshiftDir = resolveDotOpenshift(dotOpenshiftDir);
+	}
+
+	// same lookup as for git deployments
+	private static File resolveDotOpenshift(File dir) {
+		if (dir == null || dir.getName().endsWith("openshift")) {
+			return dir;
+		}
+
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.getName().endsWith("openshift")) {
+					return child;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the deployments can't be sent as they are and need to be assembled
+	 */
+	public static boolean isNeeded(List<String> deployments) {
+		for (String deployment : deployments) {
+			if (deployment.toLowerCase().endsWith(".tar.gz")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getDescription() {
+		return "archive assembled from " + deployments;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		TarOutputStream tar = new TarOutputStream(new ParallelGzipOutputStream(out));
+		tar.setLongFileMode(TarOutputStream.LONGFILE_GNU);
+		try {
+			long now = System.currentTimeMillis();
+			addDirectory(tar, "dependencies/", now);
+			addDirectory(tar, "build-dependencies/", now);
+			addDirectory(tar, "repo/", now);
+
+			if (dotOpenshiftDir != null && dotOpenshiftDir.isDirectory()) {
+				addTree(tar, dotOpenshiftDir, "repo/.openshift/");
+			}
+
+			String deployDir = "repo/" + relativeDeployDir + "/";
+			addDirectory(tar, deployDir, now);
+			if (deployments.size() == 1) {
+				String deployment = deployments.get(0);
+				addFile(tar, new File(deployment), deployDir + "ROOT." + FilenameUtils.getExtension(deployment));
+			} else {
+				for (String deployment : deployments) {
+					addFile(tar, new File(deployment), deployDir + FilenameUtils.getName(deployment));
+				}
+			}
+		} finally {
+			tar.close();
+		}
+	}
+
+	private void addTree(TarOutputStream tar, File dir, String name) throws IOException {
+		addDirectory(tar, name, dir.lastModified());
+
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (File child : children) {
+			if (child.isDirectory()) {
+				addTree(tar, child, name + child.getName() + "/");
+			} else {
+				addFile(tar, child, name + child.getName());
+			}
+		}
+	}
+
+	private void addDirectory(TarOutputStream tar, String name, long modTime) throws IOException {
+		TarEntry entry = new TarEntry(name);
+		entry.setModTime(modTime);
+		tar.putNextEntry(entry);
+		tar.closeEntry();
+	}
+
+	private void addFile(TarOutputStream tar, File file, String name) throws IOException {
+		TarEntry entry = new TarEntry(name);
+		entry.setSize(file.length());
+		entry.setModTime(file.lastModified());
+		entry.setMode(file.canExecute() ? 0100755 : 0100644); // keep action hooks executable
+		tar.putNextEntry(entry);
+
+		InputStream in = new FileInputStream(file);
+		try {
+			IOUtils.copy(in, tar);
+		} finally {
+			in.close();
+		}
+		tar.closeEntry();
+	}
+}
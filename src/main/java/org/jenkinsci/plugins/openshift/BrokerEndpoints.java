@@ -0,0 +1,180 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.openshift.util.Metrics;
+
+/**
+ * The broker nodes of a {@link Server} and their health. The {@link BrokerProber} measures the
+ * response time of every node; clients connect to the fastest healthy node and fail over to the
+ * next one when a node stops responding.
+ */
+public final class BrokerEndpoints {
+	private static final int WINDOW = 20;
+
+	private static final Map<String, BrokerEndpoints> ENDPOINTS = new HashMap<String, BrokerEndpoints>();
+
+	private final String serverName;
+
+	private List<Endpoint> endpoints;
+
+	BrokerEndpoints(String serverName, List<String> addresses) {
+		this.serverName = serverName;
+		configure(addresses);
+	}
+
+	/**
+	 * @return the endpoints of the server, updated to the current configuration of the server
+	 */
+	public static BrokerEndpoints forServer(Server server) {
+		synchronized (ENDPOINTS) {
+			BrokerEndpoints endpoints = ENDPOINTS.get(server.getName());
+			if (endpoints == null) {
+				endpoints = new BrokerEndpoints(server.getName(), server.getBrokerAddresses());
+				ENDPOINTS.put(server.getName(), endpoints);
+			} else {
+				endpoints.configure(server.getBrokerAddresses());
+			}
+
+			return endpoints;
+		}
+	}
+
+	/**
+	 * @return the broker addresses in a space or comma separated list
+	 */
+	public static List<String> parse(String addresses) {
+		List<String> list = new ArrayList<String>();
+		if (addresses != null) {
+			for (String address : addresses.trim().split("[\\s,]+")) {
+				if (address.length() > 0) {
+					list.add(address);
+				}
+			}
+		}
+		return list;
+	}
+
+	synchronized void configure(List<String> addresses) {
+		List<Endpoint> configured = new ArrayList<Endpoint>();
+		for (String address : addresses) {
+			Endpoint endpoint = find(address);
+			configured.add(endpoint == null ? new Endpoint(address) : endpoint);
+		}
+		endpoints = configured;
+	}
+
+	public synchronized List<Endpoint> getEndpoints() {
+		return Collections.unmodifiableList(new ArrayList<Endpoint>(endpoints));
+	}
+
+	/**
+	 * @return the endpoints in the order to try them: healthy endpoints by median response time,
+	 * 		endpoints which weren't probed yet in configuration order, then unhealthy endpoints
+	 */
+	public synchronized List<Endpoint> rank() {
+		List<Endpoint> ranked = new ArrayList<Endpoint>(endpoints);
+		final List<Endpoint> configured = endpoints;
+		Collections.sort(ranked, new Comparator<Endpoint>() {
+			public int compare(Endpoint a, Endpoint b) {
+				if (a.healthy != b.healthy) {
+					return a.healthy ? -1 : 1;
+				}
+				if (a.count > 0 && b.count > 0 && a.healthy) {
+					return compareLongs(a.percentile(50), b.percentile(50));
+				}
+				if ((a.count > 0) != (b.count > 0)) {
+					return a.count > 0 ? -1 : 1;
+				}
+				return configured.indexOf(a) - configured.indexOf(b);
+			}
+		});
+		return ranked;
+	}
+
+	public synchronized void onSuccess(String address, long millis) {
+		Endpoint endpoint = find(address);
+		if (endpoint != null) {
+			endpoint.healthy = true;
+			endpoint.sample(millis);
+			publish(endpoint);
+		}
+	}
+
+	public synchronized void onFailure(String address) {
+		Endpoint endpoint = find(address);
+		if (endpoint != null) {
+			endpoint.healthy = false;
+			publish(endpoint);
+		}
+	}
+
+	private void publish(Endpoint endpoint) {
+		Metrics.set("openshift_broker_endpoint_healthy", endpoint.healthy ? 1 : 0, "server", serverName, "endpoint", endpoint.address);
+		Metrics.set("openshift_broker_endpoint_p50_millis", endpoint.percentile(50), "server", serverName, "endpoint", endpoint.address);
+		Metrics.set("openshift_broker_endpoint_p95_millis", endpoint.percentile(95), "server", serverName, "endpoint", endpoint.address);
+	}
+
+	private Endpoint find(String address) {
+		if (endpoints != null) {
+			for (Endpoint endpoint : endpoints) {
+				if (endpoint.address.equals(address)) {
+					return endpoint;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static int compareLongs(long a, long b) {
+		return a < b ? -1 : (a == b ? 0 : 1);
+	}
+
+	/**
+	 * A broker node with the response times of its last probes and requests.
+	 */
+	public static final class Endpoint {
+		private final String address;
+		private final long[] samples = new long[WINDOW];
+		private int count;
+		private int next;
+		private volatile boolean healthy = true;
+
+		Endpoint(String address) {
+			this.address = address;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+
+		public boolean isHealthy() {
+			return healthy;
+		}
+
+		private void sample(long millis) {
+			samples[next] = millis;
+			next = (next + 1) % WINDOW;
+			count = Math.min(count + 1, WINDOW);
+		}
+
+		/**
+		 * @return the percentile of the sampled response times in ms, 0 if there are no samples
+		 */
+		long percentile(int percent) {
+			if (count == 0) {
+				return 0;
+			}
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(percent / 100.0 * count) - 1;
+			return sorted[Math.max(0, Math.min(count - 1, rank))];
+		}
+	}
+}
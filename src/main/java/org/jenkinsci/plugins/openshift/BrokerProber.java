@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+/**
+ * Measures the response time of the broker nodes of servers with several broker addresses, by
+ * requesting the unauthenticated API description of each node.
+ */
+@Extension
+public class BrokerProber extends AsyncPeriodicWork {
+	public BrokerProber() {
+		super("OpenShift broker prober");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return TimeUnit.MINUTES.toMillis(1);
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		for (Server server : Utils.getServers()) {
+			if (server.getBrokerAddresses().size() < 2) {
+				continue;
+			}
+
+			BrokerEndpoints endpoints = BrokerEndpoints.forServer(server);
+			for (BrokerEndpoints.Endpoint endpoint : endpoints.getEndpoints()) {
+				long start = System.currentTimeMillis();
+				try {
+					probe(server, endpoint.getAddress());
+					endpoints.onSuccess(endpoint.getAddress(), System.currentTimeMillis() - start);
+				} catch (IOException e) {
+					endpoints.onFailure(endpoint.getAddress());
+					listener.getLogger().println("Broker at '" + endpoint.getAddress() + "' of '" + server.getName() + "' is unhealthy: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void probe(Server server, String address) throws IOException {
+		BrokerRequest request = new BrokerRequest(address, null, null);
+		request.setTimeouts(BrokerRequest.timeout(server.getBrokerConnectTimeout()), BrokerRequest.timeout(server.getBrokerReadTimeout()));
+		int status = request.status("/broker/rest/api");
+		if (status != HttpURLConnection.HTTP_OK) {
+			throw new IOException("HTTP " + status);
+		}
+	}
+}
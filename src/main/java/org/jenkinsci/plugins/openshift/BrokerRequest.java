@@ -0,0 +1,242 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.util.Scrambler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Requests to the broker REST API, for the few cases where the client library would load far more
+ * than needed or has no API. Responses are requested gzip-compressed and read to the end, so that the
+ * JDK keeps the connection alive for the next request to the broker.
+ */
+class BrokerRequest {
+	static final int DEFAULT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+	private final String address;
+
+	private final String username;
+
+	private final String password;
+
+	private int connectTimeout = DEFAULT_TIMEOUT;
+
+	private int readTimeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * @param username null for unauthenticated requests
+	 */
+	BrokerRequest(String address, String username, String password) {
+		this.address = address;
+		this.username = username;
+		this.password = password;
+	}
+
+	/**
+	 * @param connectTimeout ms to wait for the connection to the broker
+	 * @param readTimeout ms to wait for the response of the broker
+	 */
+	void setTimeouts(int connectTimeout, int readTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * @param seconds a timeout of the server settings, 0 for the default
+	 * @return the timeout in ms
+	 */
+	static int timeout(int seconds) {
+		return seconds > 0 ? (int) TimeUnit.SECONDS.toMillis(seconds) : DEFAULT_TIMEOUT;
+	}
+
+	/**
+	 * @return the path of an application resource of the broker REST API
+	 */
+	static String applicationPath(String domainName, String appName) throws IOException {
+		return "/broker/rest/domain/" + URLEncoder.encode(domainName, "UTF-8") + "/application/" + URLEncoder.encode(appName, "UTF-8");
+	}
+
+	/**
+	 * @return the path of a cartridge resource of an application
+	 */
+	static String cartridgePath(String domainName, String appName, String cartridgeName) throws IOException {
+		return applicationPath(domainName, appName) + "/cartridge/" + URLEncoder.encode(cartridgeName, "UTF-8");
+	}
+
+	/**
+	 * Send a GET request and discard the response body.
+	 *
+	 * @return the HTTP status of the response
+	 */
+	int status(String path) throws IOException {
+		return get(path).getStatus();
+	}
+
+	/**
+	 * Send a GET request.
+	 */
+	Response get(String path) throws IOException {
+		return response(open(path));
+	}
+
+	/**
+	 * Send a PUT request with form parameters.
+	 */
+	Response put(String path, Map<String, String> parameters) throws IOException {
+		StringBuilder form = new StringBuilder();
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			if (form.length() > 0) {
+				form.append('&');
+			}
+			form.append(URLEncoder.encode(parameter.getKey(), "UTF-8")).append('=').append(URLEncoder.encode(parameter.getValue(), "UTF-8"));
+		}
+		byte[] bytes = form.toString().getBytes("UTF-8");
+
+		HttpURLConnection connection = open(path);
+		connection.setRequestMethod("PUT");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(bytes.length);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		return response(connection);
+	}
+
+	private HttpURLConnection open(String path) throws IOException {
+		URL url = new URL((address.contains("://") ? address : "https://" + address).replaceAll("/+$", "") + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		if (connection instanceof HttpsURLConnection) {
+			// like the client, accept the certificate of the broker
+			((HttpsURLConnection) connection).setSSLSocketFactory(TRUSTING_SOCKET_FACTORY);
+			((HttpsURLConnection) connection).setHostnameVerifier(TRUSTING_HOSTNAME_VERIFIER);
+		}
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setRequestProperty("Accept", "application/json");
+		connection.setRequestProperty("Accept-Encoding", "gzip");
+		if (username != null) {
+			connection.setRequestProperty("Authorization", "Basic " + Scrambler.scramble(username + ":" + password));
+		}
+		return connection;
+	}
+
+	private static Response response(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		InputStream body = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+		if (body == null) {
+			return new Response(status, "", 0);
+		}
+
+		CountingInputStream counted = new CountingInputStream(body);
+		try {
+			InputStream in = "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(counted) : counted;
+			String text = IOUtils.toString(in, "UTF-8");
+			return new Response(status, text, counted.getByteCount());
+		} finally {
+			body.close();
+		}
+	}
+
+	/**
+	 * The status and body of a broker response.
+	 */
+	static final class Response {
+		private final int status;
+		private final String body;
+		private final long bytes;
+
+		Response(int status, String body, long bytes) {
+			this.status = status;
+			this.body = body;
+			this.bytes = bytes;
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		String getBody() {
+			return body;
+		}
+
+		/**
+		 * @return the size of the response body as it was received, compressed or not
+		 */
+		long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return the <code>data</code> object of the response
+		 * @throws IOException if the body is not a broker response with a data object
+		 */
+		JSONObject getData() throws IOException {
+			Object data;
+			try {
+				data = JSONObject.fromObject(body).get("data");
+			} catch (JSONException e) {
+				throw new IOException("Unexpected broker response: " + e.getMessage());
+			}
+
+			if (!(data instanceof JSONObject) || ((JSONObject) data).isNullObject()) {
+				throw new IOException("Broker response with HTTP " + status + " has no data");
+			}
+			return (JSONObject) data;
+		}
+	}
+
+	private static final HostnameVerifier TRUSTING_HOSTNAME_VERIFIER = new HostnameVerifier() {
+		public boolean verify(String hostname, SSLSession session) {
+			return true;
+		}
+	};
+
+	private static final SSLSocketFactory TRUSTING_SOCKET_FACTORY = createTrustingSocketFactory();
+
+	private static SSLSocketFactory createTrustingSocketFactory() {
+		try {
+			SSLContext context = SSLContext.getInstance("TLS");
+			context.init(null, new TrustManager[] {new X509TrustManager() {
+				public void checkClientTrusted(X509Certificate[] chain, String authType) {
+				}
+
+				public void checkServerTrusted(X509Certificate[] chain, String authType) {
+				}
+
+				public X509Certificate[] getAcceptedIssuers() {
+					return new X509Certificate[0];
+				}
+			}}, null);
+			return context.getSocketFactory();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
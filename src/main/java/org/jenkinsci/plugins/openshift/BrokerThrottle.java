@@ -0,0 +1,156 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate and the number of concurrent requests to the broker of a {@link Server}. The
+ * throttle is shared by all builds and background tasks using the server. Form validations test
+ * the settings being entered rather than a saved server and aren't throttled.
+ *
+ * The rate is enforced by a token bucket which lets callers run into debt. Every caller reserves
+ * the next free slot and sleeps until then, so callers are served in the order of arrival. The
+ * concurrency cap is a fair semaphore whose permits are added or removed when the cap changes, so
+ * the requests in flight still count towards the new cap.
+ */
+public final class BrokerThrottle {
+	public static final BrokerThrottle UNLIMITED = new BrokerThrottle(0, 0);
+
+	private static final Map<String, BrokerThrottle> THROTTLES = new HashMap<String, BrokerThrottle>();
+
+	private double rate;
+	private int maxConcurrent;
+	private int permits;
+	private final ResizableSemaphore inFlight = new ResizableSemaphore();
+
+	private double tokens;
+	private long lastRefill = System.nanoTime();
+
+	BrokerThrottle(double rate, int maxConcurrent) {
+		configure(rate, maxConcurrent);
+	}
+
+	/**
+	 * @return the throttle of the server, updated to the current configuration of the server
+	 */
+	public static BrokerThrottle forServer(Server server) {
+		synchronized (THROTTLES) {
+			BrokerThrottle throttle = THROTTLES.get(server.getName());
+			if (throttle == null) {
+				throttle = new BrokerThrottle(server.getBrokerRateLimit(), server.getMaxConcurrentBrokerRequests());
+				THROTTLES.put(server.getName(), throttle);
+			} else {
+				throttle.configure(server.getBrokerRateLimit(), server.getMaxConcurrentBrokerRequests());
+			}
+
+			return throttle;
+		}
+	}
+
+	/**
+	 * @param rate requests per second, 0 or less for unlimited
+	 * @param maxConcurrent max requests in flight, 0 or less for unlimited
+	 */
+	synchronized void configure(double rate, int maxConcurrent) {
+		if (this.rate != rate) {
+			this.rate = rate;
+			this.tokens = Math.max(1, rate);
+			this.lastRefill = System.nanoTime();
+		}
+
+		// while unlimited the semaphore keeps the last cap, the requests sent meanwhile aren't counted
+		this.maxConcurrent = maxConcurrent;
+		if (maxConcurrent > 0 && maxConcurrent != permits) {
+			if (maxConcurrent > permits) {
+				inFlight.release(maxConcurrent - permits);
+			} else {
+				inFlight.reducePermits(permits - maxConcurrent);
+			}
+			permits = maxConcurrent;
+		}
+	}
+
+	/**
+	 * Block until the request may be sent to the broker.
+	 */
+	public Permit acquire() throws InterruptedException {
+		long start = System.nanoTime();
+
+		long delay = reserve();
+		if (delay > 0) {
+			TimeUnit.NANOSECONDS.sleep(delay);
+		}
+
+		Semaphore semaphore;
+		synchronized (this) {
+			semaphore = maxConcurrent > 0 ? inFlight : null;
+		}
+		if (semaphore != null) {
+			semaphore.acquire();
+		}
+
+		return new Permit(semaphore, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	/**
+	 * Take a token from the bucket.
+	 *
+	 * @return nanoseconds to wait until the token is available
+	 */
+	private synchronized long reserve() {
+		if (rate <= 0) {
+			return 0;
+		}
+
+		long now = System.nanoTime();
+		tokens = Math.min(Math.max(1, rate), tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+		lastRefill = now;
+		tokens -= 1;
+
+		return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/**
+	 * Exposes {@link Semaphore#reducePermits(int)}, which lowers the cap without waiting for the
+	 * requests in flight.
+	 */
+	private static final class ResizableSemaphore extends Semaphore {
+		private static final long serialVersionUID = 1L;
+
+		ResizableSemaphore() {
+			super(0, true);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+
+	public static final class Permit {
+		private final Semaphore semaphore;
+		private final long waitMillis;
+		private boolean released;
+
+		private Permit(Semaphore semaphore, long waitMillis) {
+			this.semaphore = semaphore;
+			this.waitMillis = waitMillis;
+		}
+
+		/**
+		 * @return the time spent waiting for the permit
+		 */
+		public long getWaitMillis() {
+			return waitMillis;
+		}
+
+		public synchronized void release() {
+			if (!released && semaphore != null) {
+				semaphore.release();
+			}
+			released = true;
+		}
+	}
+}
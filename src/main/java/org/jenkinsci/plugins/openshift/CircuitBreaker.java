@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+
+/**
+ * Fails broker requests fast while the broker of a server is unhealthy. The breaker opens after a
+ * number of consecutive transient failures. Once the open period is over a single trial request is
+ * let through; it closes the breaker on success and reopens it on failure.
+ */
+final class CircuitBreaker {
+	enum State {CLOSED, HALF_OPEN, OPEN}
+
+	private static final int FAILURE_THRESHOLD = 5;
+
+	private static final long OPEN_PERIOD = TimeUnit.SECONDS.toMillis(30);
+
+	private static final Map<String, CircuitBreaker> BREAKERS = new HashMap<String, CircuitBreaker>();
+
+	private final String serverName;
+
+	private State state = State.CLOSED;
+
+	private int failures;
+
+	private long openedAt;
+
+	private boolean trialInProgress;
+
+	CircuitBreaker(String serverName) {
+		this.serverName = serverName;
+	}
+
+	public static CircuitBreaker forServer(String serverName) {
+		synchronized (BREAKERS) {
+			CircuitBreaker breaker = BREAKERS.get(serverName);
+			if (breaker == null) {
+				breaker = new CircuitBreaker(serverName);
+				BREAKERS.put(serverName, breaker);
+			}
+
+			return breaker;
+		}
+	}
+
+	/**
+	 * @return whether the request is the trial request of the half-open breaker
+	 * @throws OpenShiftException if the breaker is open
+	 */
+	public synchronized boolean beforeRequest(Logger log) throws OpenShiftException {
+		if (state == State.OPEN && System.currentTimeMillis() - openedAt >= OPEN_PERIOD) {
+			transition(State.HALF_OPEN, log);
+		}
+
+		if (state == State.OPEN || (state == State.HALF_OPEN && trialInProgress)) {
+			Metrics.increment("openshift_broker_circuit_rejections_total", "server", serverName);
+			long remaining = Math.max(0, OPEN_PERIOD - (System.currentTimeMillis() - openedAt));
+			throw new OpenShiftException("The broker of '" + serverName + "' is unhealthy (circuit breaker is " 
+					+ state + "). Failing fast for " + TimeUnit.MILLISECONDS.toSeconds(remaining) + " more seconds.");
+		}
+
+		if (state == State.HALF_OPEN) {
+			trialInProgress = true;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized void onSuccess(Logger log) {
+		failures = 0;
+		if (state != State.CLOSED) {
+			transition(State.CLOSED, log);
+		}
+	}
+
+	public synchronized void onFailure(Logger log) {
+		failures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= FAILURE_THRESHOLD)) {
+			openedAt = System.currentTimeMillis();
+			transition(State.OPEN, log);
+		}
+	}
+
+	/**
+	 * Ends the request which passed {@link #beforeRequest(Logger)}, however it ended, so that a trial
+	 * request which failed with an unexpected error doesn't keep the breaker half-open forever. Other
+	 * requests which were let through before the breaker opened don't end the trial.
+	 *
+	 * @param trial what {@link #beforeRequest(Logger)} returned for the request
+	 */
+	public synchronized void afterRequest(boolean trial) {
+		if (trial) {
+			trialInProgress = false;
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	private void transition(State newState, Logger log) {
+		log.info("Circuit breaker for the broker of '" + serverName + "' changed from " + state + " to " + newState);
+		state = newState;
+		Metrics.set("openshift_broker_circuit_state", newState.ordinal(), "server", serverName);
+	}
+}
@@ -1,9 +1,11 @@
 package org.jenkinsci.plugins.openshift;
 
+import static java.util.Collections.singletonMap;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.jenkinsci.plugins.openshift.util.Utils.abort;
 import static org.jenkinsci.plugins.openshift.util.Utils.findServer;
 import static org.jenkinsci.plugins.openshift.util.Utils.log;
+import hudson.AbortException;
 import hudson.Extension;
 import hudson.Launcher;
 import hudson.model.BuildListener;
@@ -13,13 +15,30 @@ import hudson.model.AbstractProject;
 import hudson.tasks.BuildStep;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Builder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import jenkins.model.Jenkins;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.plugins.openshift.util.JenkinsLogger;
+import org.jenkinsci.plugins.openshift.util.Logger;
 import org.jenkinsci.plugins.openshift.util.Utils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import com.openshift.client.IApplication;
 
@@ -30,6 +49,11 @@ public class DeleteApplication extends Builder implements BuildStep {
     private String serverName;
     private String domain;
     private String appName;
+    private String domains;
+    private Integer parallelism;
+    private boolean async;
+
+	private static final int DEFAULT_PARALLELISM = 4;
 
 	@DataBoundConstructor
     public DeleteApplication(String serverName, String appName, String domain) {
@@ -55,8 +79,13 @@ public class DeleteApplication extends Builder implements BuildStep {
         		abort(listener, "No OpenShift server is selected or none are defined in Jenkins Configuration.");
         	}
 
-        	OpenShiftV2Client client = new OpenShiftV2Client(server.getBrokerAddress(), server.getUsername(), server.getPassword());
+        	OpenShiftV2Client client = new OpenShiftV2Client(server);
+        	client.setLogger(new JenkinsLogger(listener));
         	
+        	if (isPattern(appName)) {
+        		return deleteMatching(client, server, build, listener);
+        	}
+
         	String targetDomain = domain;
         	if (isEmpty(targetDomain)) { // pick the domain if only one exists
         		List<String> domains = client.getDomains();
@@ -70,7 +99,27 @@ public class DeleteApplication extends Builder implements BuildStep {
         		targetDomain = domains.get(0);
         	}
         	
-        	IApplication deletedApp = client.deleteApp(appName, targetDomain);
+        	// an application claimed from a standby pool has another name
+        	String gearAppName = appName;
+        	String claimed = StandbyPool.get().getClaim(server.getName(), targetDomain, appName);
+        	if (claimed != null) {
+        		log(listener, "Application '" + appName + "' is the standby application '" + claimed + "'");
+        		gearAppName = claimed;
+        	}
+
+        	if (async) {
+        		IApplication app = client.getApp(gearAppName, targetDomain);
+        		if (app == null) {
+        			log(listener, "Application '" + appName + "' is not found.");
+        		} else {
+        			client.setLogger(Logger.NOOP);
+        			submit(client, server, singletonMap(app, targetDomain), build, listener);
+        		}
+        		return true;
+        	}
+
+        	IApplication deletedApp = client.deleteApp(gearAppName, targetDomain);
+        	forget(server.getName(), targetDomain, gearAppName);
         	if (deletedApp != null) {
 			log(listener, "Application '" + appName + "' [" + deletedApp.getApplicationUrl() + "] is deleted.");
 		}
@@ -78,6 +127,8 @@ public class DeleteApplication extends Builder implements BuildStep {
 			log(listener, "Application '" + appName + "' is not found.");
 		}
         	
+        } catch (AbortException e) {
+        	throw e;
         } catch(Exception e) {
         	abort(listener, e.getMessage());
         }
@@ -85,6 +136,139 @@ public class DeleteApplication extends Builder implements BuildStep {
         return true;
     }
 	
+	/**
+	 * Delete all applications matching the pattern in the selected domains. Each domain is listed once,
+	 * and the applications are destroyed concurrently. Claimed standby applications match by the name
+	 * they were claimed for.
+	 */
+	private boolean deleteMatching(final OpenShiftV2Client client, final Server server, AbstractBuild<?, ?> build, BuildListener listener) throws InterruptedException, AbortException {
+		Pattern pattern = toPattern(appName);
+
+		List<String> targetDomains = new ArrayList<String>();
+		if (isEmpty(domains)) {
+			if (isEmpty(domain)) {
+				abort(listener, "Specify the domain to delete the applications matching '" + appName + "' from.");
+			}
+			targetDomains.add(domain);
+		} else if (domains.trim().equals("*")) {
+			targetDomains.addAll(client.getDomains());
+		} else {
+			targetDomains.addAll(Arrays.asList(domains.trim().split("[\\s,]+")));
+		}
+
+		Map<IApplication, String> apps = new LinkedHashMap<IApplication, String>();
+		for (String targetDomain : targetDomains) {
+			Map<String, String> requestedNames = StandbyPool.get().getRequestedNames(server.getName(), targetDomain);
+			for (IApplication app : client.findApps(targetDomain, StandbyPool.withClaims(pattern, requestedNames))) {
+				apps.put(app, targetDomain);
+			}
+		}
+
+		if (apps.isEmpty()) {
+			log(listener, "No applications matching '" + appName + "' found in " + targetDomains);
+			return true;
+		}
+
+		if (async) {
+			client.setLogger(Logger.NOOP);
+			submit(client, server, apps, build, listener);
+			return true;
+		}
+
+		int threads = Math.max(1, Math.min(getParallelism(), apps.size()));
+		log(listener, "Deleting " + apps.size() + " applications matching '" + appName + "', " + threads + " at a time");
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift delete " + appName));
+		Map<String, Future<?>> results = new LinkedHashMap<String, Future<?>>();
+		try {
+			for (Map.Entry<IApplication, String> entry : apps.entrySet()) {
+				final IApplication app = entry.getKey();
+				final String appDomain = entry.getValue();
+				results.put(app.getName() + " (" + appDomain + ")", executor.submit(new Callable<Void>() {
+					public Void call() {
+						client.destroyApp(app);
+						forget(server.getName(), appDomain, app.getName());
+						return null;
+					}
+				}));
+			}
+
+			int failed = 0;
+			log(listener, "Summary:");
+			for (Map.Entry<String, Future<?>> result : results.entrySet()) {
+				try {
+					result.getValue().get();
+					log(listener, "  " + result.getKey() + ": deleted");
+				} catch (ExecutionException e) {
+					failed++;
+					log(listener, "  " + result.getKey() + ": failed. " + e.getCause().getMessage());
+				}
+			}
+
+			if (failed > 0) {
+				abort(listener, failed + " of " + results.size() + " applications could not be deleted.");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Hand the deletions over to {@link PendingDeletions}, so the build doesn't wait for the broker.
+	 */
+	private void submit(OpenShiftV2Client client, Server server, Map<IApplication, String> apps, AbstractBuild<?, ?> build, BuildListener listener) {
+		PendingDeletions pending = PendingDeletions.get();
+		String requestedBy = build == null ? null : build.getFullDisplayName();
+		for (Map.Entry<IApplication, String> app : apps.entrySet()) {
+			pending.submit(client, server.getName(), app.getKey(), app.getValue(), requestedBy);
+			log(listener, "Deletion of application '" + app.getKey().getName() + "' submitted.");
+		}
+		log(listener, "Deletions run in the background, see " + Jenkins.getInstance().getRootUrl() + pending.getUrlName());
+	}
+
+	/**
+	 * Drop what the plugin keeps about a deleted application: the standby pool claim on it and the
+	 * time of its last deployment.
+	 *
+	 * @param appName the name of the application on OpenShift, which differs from the requested name
+	 * 		for a claimed standby application
+	 */
+	static void forget(String serverName, String domain, String appName) {
+		StandbyPool.get().releaseClaimOf(serverName, domain, appName);
+		LastDeployments.get().remove(serverName, domain, appName);
+	}
+
+	/**
+	 * Application names are alphanumeric, so a name with glob characters or in slashes is a pattern.
+	 */
+	static boolean isPattern(String appName) {
+		return appName.contains("*") || appName.contains("?") || (appName.length() > 1 && appName.startsWith("/") && appName.endsWith("/"));
+	}
+
+	/**
+	 * @param appName a glob such as <code>pr-*</code> or a regular expression in slashes such as <code>/pr-[0-9]+/</code>
+	 */
+	static Pattern toPattern(String appName) {
+		if (appName.length() > 1 && appName.startsWith("/") && appName.endsWith("/")) {
+			return Pattern.compile(appName.substring(1, appName.length() - 1));
+		}
+
+		StringBuilder regex = new StringBuilder();
+		for (String part : appName.split("((?<=[*?])|(?=[*?]))")) {
+			if (part.equals("*")) {
+				regex.append(".*");
+			} else if (part.equals("?")) {
+				regex.append('.');
+			} else if (!part.isEmpty()) {
+				regex.append(Pattern.quote(part));
+			}
+		}
+		return Pattern.compile(regex.toString());
+	}
+
 	public BuildStepMonitor getRequiredMonitorService() {
         return BuildStepMonitor.BUILD;
     }
@@ -100,6 +284,33 @@ public class DeleteApplication extends Builder implements BuildStep {
 	public String getAppName() {
 		return appName;
 	}
+
+	public String getDomains() {
+		return domains;
+	}
+
+	@DataBoundSetter
+	public void setDomains(String domains) {
+		this.domains = domains;
+	}
+
+	public int getParallelism() {
+		return parallelism == null ? DEFAULT_PARALLELISM : parallelism;
+	}
+
+	@DataBoundSetter
+	public void setParallelism(Integer parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	@DataBoundSetter
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
 	
 	@Extension
 	public static class DeleteApplicationDescriptor extends AbstractDescriptor {
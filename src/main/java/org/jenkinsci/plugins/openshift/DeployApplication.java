@@ -9,7 +9,6 @@ import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 import hudson.model.Result;
-import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildStep;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Builder;
@@ -18,8 +17,8 @@ import hudson.util.ListBoxModel;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.text.StrTokenizer;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.jenkinsci.plugins.openshift.GitClient.PackMode;
 import org.jenkinsci.plugins.openshift.OpenShiftV2Client.DeploymentType;
 import org.jenkinsci.plugins.openshift.OpenShiftV2Client.ValidationResult;
 import org.jenkinsci.plugins.openshift.util.JenkinsLogger;
@@ -27,6 +26,7 @@ import org.jenkinsci.plugins.openshift.util.Utils;
 import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -38,8 +38,6 @@ import java.util.logging.Logger;
 
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
-import static org.apache.commons.lang3.text.StrMatcher.quoteMatcher;
-import static org.apache.commons.lang3.text.StrMatcher.spaceMatcher;
 import static org.jenkinsci.plugins.openshift.util.Utils.*;
 
 /**
@@ -60,6 +58,25 @@ public class DeployApplication extends Builder implements BuildStep {
 	private Boolean autoScale;
 	private DeploymentType deploymentType = DeploymentType.GIT;
 	private String openshiftDirectory;
+	private boolean coalesceDeployments;
+
+	private PackMode packMode = PackMode.DEFAULT;
+
+	private int packThreads;
+
+	private boolean explodeArchives;
+
+	private boolean hotSync;
+
+	private String readinessChecks;
+
+	private Integer readinessTimeout;
+
+	private boolean parallelGears;
+
+	private int gearBatchSize;
+
+	private int preScaleGears;
 
 	@DataBoundConstructor
 	public DeployApplication(String serverName, String appName, String cartridges, String domain, String gearProfile, String deploymentPackage,
@@ -109,9 +126,10 @@ public class DeployApplication extends Builder implements BuildStep {
 				abort(listener, "No OpenShift server is selected or none are defined in Jenkins Configuration.");
 			}
 
-			log(listener, "Deploying to OpenShift at http://" + server.getBrokerAddress() + ". Be patient! It might take a minute...");
+			OpenShiftV2Client client = new OpenShiftV2Client(server);
+			client.setLogger(new JenkinsLogger(listener));
 
-			OpenShiftV2Client client = new OpenShiftV2Client(server.getBrokerAddress(), server.getUsername(), server.getPassword());
+			log(listener, "Deploying to OpenShift at http://" + client.getEndpoint() + ". Be patient! It might take a minute...");
 
 			String targetDomain = domain;
 			if (isEmpty(targetDomain)) { // pick the domain if only one exists
@@ -126,15 +144,53 @@ public class DeployApplication extends Builder implements BuildStep {
 				targetDomain = domains.get(0);
 			}
 
-			IApplication app;
-			if (isEmpty(environmentVariables)) {
-				app = client.getOrCreateApp(expandedAppName(build, listener), targetDomain, Arrays.asList(cartridges.split(" ")), gearProfile, null, autoScale);
-			} else {
-				Map<String, String> mapOfEnvironmentVariables = parseEnvironmentVariables(listener);
-				app = client.getOrCreateApp(expandedAppName(build, listener), targetDomain, Arrays.asList(cartridges.split(" ")), gearProfile, mapOfEnvironmentVariables, autoScale);
+			String targetAppName = expandedAppName(build, listener);
+			DeploymentLocks.Ticket ticket = DeploymentLocks.enqueue(server.getName(), targetDomain, targetAppName, build.getFullDisplayName());
+			try {
+				String holder = ticket.getHolder();
+				if (holder != null) {
+					log(listener, "Waiting for the deployment of '" + targetAppName + "' by " + holder + " to finish");
+				}
+
+				if (!ticket.acquire(coalesceDeployments)) {
+					log(listener, "Deployment of '" + targetAppName + "' is skipped. It is superseded by " + ticket.getSupersededBy());
+					build.addAction(new DeploymentCoalescedAction(targetAppName, ticket.getSupersededBy()));
+					return true;
+				}
+
+				// a new application may be taken from a standby pool
+				long provisionStart = System.currentTimeMillis();
+				String gearAppName = StandbyPool.get().resolve(client, server, targetDomain, targetAppName, cartridges, gearProfile,
+						Boolean.TRUE.equals(autoScale), new JenkinsLogger(listener));
+
+				IApplication app;
+				if (isEmpty(environmentVariables)) {
+					app = client.getOrCreateApp(gearAppName, targetDomain, Arrays.asList(cartridges.split(" ")), gearProfile, null, autoScale);
+				} else {
+					Map<String, String> mapOfEnvironmentVariables = parseEnvironmentVariables(listener);
+					app = client.getOrCreateApp(gearAppName, targetDomain, Arrays.asList(cartridges.split(" ")), gearProfile, mapOfEnvironmentVariables, autoScale);
+				}
+
+				long provisionMillis = System.currentTimeMillis() - provisionStart;
+
+				DeployTimings timings = new DeployTimings();
+				timings.add(DeployTimings.PROVISION, provisionMillis);
+				timings.addAll(deploy(deployments, client, targetDomain, app, build, listener));
+				DeployHistory.record(build, targetAppName, timings, new JenkinsLogger(listener));
+				LastDeployments.get().record(server.getName(), targetDomain, gearAppName);
+			} finally {
+				ticket.release();
+			}
+
+			log(listener, "Broker requests: " + client.getRequests() + " in " + client.getRequestMillis() + " ms");
+
+			if (client.getThrottleWaitMillis() > 0) {
+				log(listener, "Time spent waiting for the broker request limit: " + client.getThrottleWaitMillis() + " ms");
 			}
 
-			deploy(deployments, app, build, listener);
+			if (client.getRetries() > 0) {
+				log(listener, "Broker requests retried: " + client.getRetries());
+			}
 
 		} catch (Exception e) {
 			abort(listener, e);
@@ -144,68 +200,123 @@ public class DeployApplication extends Builder implements BuildStep {
 	}
 
 	private Map<String, String> parseEnvironmentVariables(final BuildListener listener) throws AbortException {
-		Map<String, String> mapOfEnvironmentVariables = new HashMap<String, String>();
-
-		for (String environmentVariable :
-				new StrTokenizer(environmentVariables, spaceMatcher(), quoteMatcher()).getTokenList()) {
-
-			if (environmentVariable.contains("=")) {
-				String[] parts = environmentVariable.split("=", 2);
-				mapOfEnvironmentVariables.put(parts[0], parts[1]);
-			} else {
-                abort(listener, "Invalid environment variable: " + environmentVariable);
-            }
-        }
-
-		return mapOfEnvironmentVariables;
+		return Utils.parseEnvironmentVariables(environmentVariables, listener);
 	}
 
-	private void deploy(List<String> deployments, IApplication app, AbstractBuild<?, ?> build, BuildListener listener)
+	/**
+	 * @return the timings of the stage, deploy and ready phases
+	 */
+	private DeployTimings deploy(List<String> deployments, OpenShiftV2Client client, String targetDomain, IApplication app,
+			AbstractBuild<?, ?> build, BuildListener listener)
 			throws GitAPIException, IOException {
 		if (deployments == null || deployments.isEmpty()) {
 			abort(listener, "Deployment package list is empty.");
 		}
 
 		if (deploymentType == DeploymentType.BINARY) {
-			doBinaryDeploy(deployments.get(0), app, build, listener);
+			return doBinaryDeploy(deployments, client, targetDomain, app, build, listener);
 		} else {
-			doGitDeploy(deployments, app, build, listener);
+			return doGitDeploy(deployments, client, targetDomain, app, build, listener);
 		}
-
-		log(listener, "Application deployed to " + app.getApplicationUrl());
 	}
 
-	private void doBinaryDeploy(String deployment, IApplication app, AbstractBuild<?, ?> build, final BuildListener listener) throws IOException {
-		// reconfigure app for binary deploy
-		if (!app.getDeploymentType().equalsIgnoreCase(DeploymentType.BINARY.name())) {
-			app.setDeploymentType(DeploymentType.BINARY.toString().toLowerCase());
+	private DeployTimings doBinaryDeploy(List<String> deployments, OpenShiftV2Client client, String targetDomain, IApplication app,
+			AbstractBuild<?, ?> build, final BuildListener listener)
+			throws GitAPIException, IOException {
+		// a prebuilt archive is deployed as it is, WARs and EARs are assembled into one
+		if (!BinaryArchive.isNeeded(deployments) && deployments.size() > 1) {
+			log(listener, "Several binary deployment archives found. Deploying " + deployments.get(0));
+			deployments = singletonList(deployments.get(0));
 		}
-		
+
 		// copy deployments to master from the slave node or URLs
 		File baseDir = createBaseDirOnMaster(build);
-		List<String> localDeployments = Utils.copyDeploymenstToMaster(build, listener, singletonList(deployment), baseDir, deploymentType);
-
-		// deploy
-		SSHClient sshClient = new SSHClient(app);
-		sshClient.setLogger(new JenkinsLogger(listener));
-		sshClient.setSSHPrivateKey(Utils.getSSHPrivateKey());
-		sshClient.deploy(new File(localDeployments.get(0)));
+		String dotOpenshiftDir = stageOpenshiftDirectory(build, baseDir);
+		List<ArtifactStore.Lease> leases = new ArrayList<ArtifactStore.Lease>();
+		try {
+			long stageStart = System.currentTimeMillis();
+			List<String> localDeployments = Utils.copyDeploymenstToMaster(build, listener, deployments, baseDir, deploymentType, leases);
+			long stageMillis = System.currentTimeMillis() - stageStart;
+
+			// deploy
+			ApplicationDeployer deployer = new ApplicationDeployer(app, deploymentType, cartridges);
+			deployer.setLogger(new JenkinsLogger(listener));
+			deployer.setServerName(serverName);
+			deployer.setParallelGears(parallelGears, gearBatchSize);
+			deployer.setPreScale(client, targetDomain, preScaleGears);
+			deployer.setReadinessCheck(readinessChecks, getReadinessTimeout());
+			deployer.deploy(localDeployments, baseDir, dotOpenshiftDir, null);
+			recordReadiness(deployer, app, build);
+			return timings(stageMillis, deployer);
+		} finally {
+			releaseAll(leases);
+		}
 	}
 
-	private void doGitDeploy(List<String> deployments, IApplication app, AbstractBuild<?, ?> build, BuildListener listener)
+	private DeployTimings doGitDeploy(List<String> deployments, OpenShiftV2Client client, String targetDomain, IApplication app,
+			AbstractBuild<?, ?> build, BuildListener listener)
 			throws GitAPIException, IOException {
 		File baseDir = createBaseDirOnMaster(build);
 		String commitMsg = "deployment added for Jenkins build " + build.getDisplayName() + "#" + build.getNumber();
+
+		// the .openshift directory is synchronized from where it is, see DotOpenshiftSync
+		FilePath dotOpenshiftSource = null;
+		if (!isEmpty(openshiftDirectory)) {
+			if (new File(openshiftDirectory).isAbsolute()) {
+				dotOpenshiftSource = new FilePath(build.getWorkspace().getChannel(), openshiftDirectory);
+			} else {
+				dotOpenshiftSource = build.getWorkspace().child(openshiftDirectory);
+			}
+		}
 		
-		// set deployment dir based on cartridge type
-		String relativeDeployPath;
-		if (cartridges.contains("jbossews")) {
-			relativeDeployPath = "/webapps"; // tomcat
-		} else {
-			relativeDeployPath = "/deployments"; // jboss/wildfly
+		// copy deployments to master from the slave node or URL
+		List<ArtifactStore.Lease> leases = new ArrayList<ArtifactStore.Lease>();
+		try {
+			long stageStart = System.currentTimeMillis();
+			List<String> localDeployments = copyDeploymenstToMaster(build, listener, deployments, baseDir, deploymentType, leases);
+			long stageMillis = System.currentTimeMillis() - stageStart;
+			
+			// git deploy
+			ApplicationDeployer deployer = new ApplicationDeployer(app, deploymentType, cartridges);
+			deployer.setLogger(new JenkinsLogger(listener));
+			deployer.setServerName(serverName);
+			deployer.setPackOptions(getPackMode(), packThreads);
+			deployer.setExplodeArchives(explodeArchives);
+			deployer.setHotSync(hotSync);
+			deployer.setDotOpenshiftSource(dotOpenshiftSource);
+			deployer.setPreScale(client, targetDomain, preScaleGears);
+			deployer.setReadinessCheck(readinessChecks, getReadinessTimeout());
+			deployer.deploy(localDeployments, baseDir, null, commitMsg);
+			recordReadiness(deployer, app, build);
+			return timings(stageMillis, deployer);
+		} finally {
+			releaseAll(leases);
+		}
+	}
+
+	private static void recordReadiness(ApplicationDeployer deployer, IApplication app, AbstractBuild<?, ?> build) {
+		if (deployer.getTimeToReady() >= 0) {
+			build.addAction(new ReadinessAction(app.getName(), deployer.getTimeToReady()));
 		}
+	}
+
+	private static DeployTimings timings(long stageMillis, ApplicationDeployer deployer) {
+		DeployTimings timings = new DeployTimings();
+		timings.add(DeployTimings.STAGE, stageMillis);
+		timings.addAll(deployer.getTimings());
+		return timings;
+	}
 
-		// set .openshift dir
+	private static void releaseAll(List<ArtifactStore.Lease> leases) {
+		for (ArtifactStore.Lease lease : leases) {
+			lease.release();
+		}
+	}
+
+	/**
+	 * @return the .openshift directory on the master node or null if none is configured
+	 */
+	private String stageOpenshiftDirectory(AbstractBuild<?, ?> build, File baseDir) throws IOException {
 		String dotOpenshiftDir = null;
 		if(!isEmpty(openshiftDirectory)) {
 			if (new File(openshiftDirectory).isAbsolute()) {
@@ -221,16 +332,7 @@ public class DeployApplication extends Builder implements BuildStep {
 			}
 		}
 		
-		// copy deployments to master from the slave node or URL
-		List<String> localDeployments = copyDeploymenstToMaster(build, listener, deployments, baseDir, deploymentType);
-		
-		// set git base dir
-		File gitBaseDir = new File(baseDir, "git");
-		
-		// git deploy
-		GitClient gitClient = new GitClient(app);
-		gitClient.setLogger(new JenkinsLogger(listener));
-		gitClient.deploy(localDeployments, gitBaseDir, relativeDeployPath, commitMsg, dotOpenshiftDir);
+		return dotOpenshiftDir;
 	}
 
 	private File createBaseDirOnMaster(AbstractBuild<?, ?> build) throws IOException {
@@ -255,53 +357,7 @@ public class DeployApplication extends Builder implements BuildStep {
 			}
 
 		} else {
-			VirtualChannel channel = build.getWorkspace().getChannel();
-			String filePath = null;
-			if (new File(deploymentPackage).isAbsolute()) {
-				filePath = deploymentPackage;
-			} else {
-				filePath = build.getWorkspace() + File.separator + deploymentPackage;
-			}
-			
-			FilePath dir = new FilePath(channel, filePath);
-
-			LOG.fine("Using hudson.FilePath for resolving content for deploy:\n    Channel: " + channel + " \n    FilePath: " + filePath);
-
-			try {
-				if (!dir.exists()) {
-					abort(listener, "Directory '" + dir + "' doesn't exist. No deployments found!");
-				}
-			} catch (Exception e) {
-				throw new AbortException(e.getMessage());
-			}
-
-			try {
-				if (dir.isDirectory()) {
-					String includes = null;
-					if (deploymentType == DeploymentType.BINARY) {
-						includes = "*.tar.gz";
-					} else {
-						includes = "*.ear,*.war";
-					}
-
-					FilePath[] deploymentFiles = dir.list(includes);
-					for (FilePath file : deploymentFiles) {
-						deployments.add(file.getRemote());
-						
-						LOG.fine("Adding " + file.getRemote() + " to deployment list");
-					}
-				} else if (!dir.isDirectory() 
-						&& (dir.getRemote().toLowerCase().endsWith(".ear") 
-								|| dir.getRemote().toLowerCase().endsWith(".war")
-								|| dir.getRemote().toLowerCase().endsWith(".tar.gz"))) { // Handle single Files
-					deployments.add(dir.getRemote());
-					
-					LOG.fine("Adding " + dir.getRemote() + " to the deployment list");
-				}
-				
-			} catch (Exception e) {
-				throw new AbortException(e.getMessage());
-			}
+			deployments.addAll(Utils.findDeployments(build.getWorkspace(), deploymentPackage, deploymentType, listener));
 		}
 
 		// If we cannot find any deployments we should abort to avoid NullPointers
@@ -382,6 +438,99 @@ public class DeployApplication extends Builder implements BuildStep {
 		return deploymentType;
 	}
 
+	public boolean isCoalesceDeployments() {
+		return coalesceDeployments;
+	}
+
+	@DataBoundSetter
+	public void setCoalesceDeployments(boolean coalesceDeployments) {
+		this.coalesceDeployments = coalesceDeployments;
+	}
+
+	public PackMode getPackMode() {
+		return packMode == null ? PackMode.DEFAULT : packMode; // null when loaded from an older config
+	}
+
+	@DataBoundSetter
+	public void setPackMode(PackMode packMode) {
+		this.packMode = packMode;
+	}
+
+	public int getPackThreads() {
+		return packThreads;
+	}
+
+	@DataBoundSetter
+	public void setPackThreads(int packThreads) {
+		this.packThreads = packThreads;
+	}
+
+	public boolean isExplodeArchives() {
+		return explodeArchives;
+	}
+
+	@DataBoundSetter
+	public void setExplodeArchives(boolean explodeArchives) {
+		this.explodeArchives = explodeArchives;
+	}
+
+	public boolean isHotSync() {
+		return hotSync;
+	}
+
+	@DataBoundSetter
+	public void setHotSync(boolean hotSync) {
+		this.hotSync = hotSync;
+	}
+
+	public String getReadinessChecks() {
+		return readinessChecks;
+	}
+
+	@DataBoundSetter
+	public void setReadinessChecks(String readinessChecks) {
+		this.readinessChecks = readinessChecks;
+	}
+
+	/**
+	 * @return seconds to wait for the readiness checks
+	 */
+	public int getReadinessTimeout() {
+		return readinessTimeout == null ? ReadinessCheck.DEFAULT_TIMEOUT : readinessTimeout;
+	}
+
+	@DataBoundSetter
+	public void setReadinessTimeout(Integer readinessTimeout) {
+		this.readinessTimeout = readinessTimeout;
+	}
+
+	public boolean isParallelGears() {
+		return parallelGears;
+	}
+
+	@DataBoundSetter
+	public void setParallelGears(boolean parallelGears) {
+		this.parallelGears = parallelGears;
+	}
+
+	public int getGearBatchSize() {
+		return gearBatchSize;
+	}
+
+	@DataBoundSetter
+	public void setGearBatchSize(int gearBatchSize) {
+		this.gearBatchSize = gearBatchSize;
+	}
+
+	public int getPreScaleGears() {
+		return preScaleGears;
+	}
+
+	@DataBoundSetter
+	public void setPreScaleGears(int preScaleGears) {
+		this.preScaleGears = preScaleGears;
+	}
+
 	public static class TrustingISSLCertificateCallback implements ISSLCertificateCallback {
 		public boolean allowCertificate(java.security.cert.X509Certificate[] certs) {
 			return true;
@@ -394,12 +543,24 @@ public class DeployApplication extends Builder implements BuildStep {
 
 	@Extension
 	public static class DeployApplicationDescriptor extends AbstractDescriptor {
+		private static final long DEFAULT_ARTIFACT_STORE_QUOTA = 2048;
+
+		private static final int DEFAULT_DEPLOY_REGRESSION_THRESHOLD = 50;
+
 		private final String DEFAULT_PUBLICKEY_PATH = System.getProperty("user.home") + "/.ssh/id_rsa.pub";
 
 		private List<Server> servers = new ArrayList<Server>();
 
+		private List<StandbyPoolTemplate> standbyPools = new ArrayList<StandbyPoolTemplate>();
+
+		private List<ReaperRule> reaperRules = new ArrayList<ReaperRule>();
+
 		public String publicKeyPath;
 
+		public Long artifactStoreQuota;
+
+		public Integer deployRegressionThreshold;
+
 		public DeployApplicationDescriptor() {
 			super(DeployApplication.class);
 			load();
@@ -414,7 +575,23 @@ public class DeployApplication extends Builder implements BuildStep {
 				servers = null;
 			}
 
+			Object p = json.get("standbyPools");
+			if (p != null && !JSONNull.getInstance().equals(p)) {
+				standbyPools = req.bindJSONToList(StandbyPoolTemplate.class, p);
+			} else {
+				standbyPools = null;
+			}
+
+			Object r = json.get("reaperRules");
+			if (r != null && !JSONNull.getInstance().equals(r)) {
+				reaperRules = req.bindJSONToList(ReaperRule.class, r);
+			} else {
+				reaperRules = null;
+			}
+
 			publicKeyPath = json.getString("publicKeyPath");
+			artifactStoreQuota = json.has("artifactStoreQuota") ? json.getLong("artifactStoreQuota") : null;
+			deployRegressionThreshold = json.has("deployRegressionThreshold") ? json.getInt("deployRegressionThreshold") : null;
 			save();
 			return super.configure(req, json);
 		}
@@ -427,7 +604,29 @@ public class DeployApplication extends Builder implements BuildStep {
 		public List<Server> getServers() {
 			return servers;
 		}
+
+		public List<StandbyPoolTemplate> getStandbyPools() {
+			return standbyPools;
+		}
+
+		public List<ReaperRule> getReaperRules() {
+			return reaperRules;
+		}
 		
+		/**
+		 * @return max size of the artifact store in MB, 0 if disabled
+		 */
+		public long getArtifactStoreQuota() {
+			return artifactStoreQuota == null ? DEFAULT_ARTIFACT_STORE_QUOTA : Math.max(0, artifactStoreQuota);
+		}
+
+		/**
+		 * @return how much slower than usual in percent a deploy phase is flagged, 0 if never
+		 */
+		public int getDeployRegressionThreshold() {
+			return deployRegressionThreshold == null ? DEFAULT_DEPLOY_REGRESSION_THRESHOLD : Math.max(0, deployRegressionThreshold);
+		}
+
 		public String getPublicKeyPath() {
 			return isEmpty(publicKeyPath) ? DEFAULT_PUBLICKEY_PATH : publicKeyPath;
 		}
@@ -478,7 +677,7 @@ public class DeployApplication extends Builder implements BuildStep {
 				return items;
 			}
 
-			OpenShiftV2Client client = new OpenShiftV2Client(server.getBrokerAddress(), server.getUsername(), server.getPassword());
+			OpenShiftV2Client client = new OpenShiftV2Client(server);
 			for (String gearProfile : client.getGearProfiles(domain)) {
 				items.add(gearProfile, gearProfile);
 			}
@@ -0,0 +1,262 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.util.ListBoxModel;
+
+import java.io.Serializable;
+
+import org.jenkinsci.plugins.openshift.GitClient.PackMode;
+import org.jenkinsci.plugins.openshift.OpenShiftV2Client.DeploymentType;
+import org.jenkinsci.plugins.openshift.util.Utils;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Pipeline counterpart of {@link DeployApplication}. The deployment runs asynchronously on the
+ * master so the step doesn't occupy a thread while the broker provisions the application and
+ * the gear becomes accessible, and the wait is resumed after a restart of Jenkins.
+ *
+ * <pre>
+ * openshiftDeploy serverName: 'openshift', appName: 'myapp', cartridges: 'jbosseap-6', deploymentPackage: 'target/'
+ * </pre>
+ */
+public class DeployApplicationStep extends AbstractStepImpl implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String serverName;
+	private final String appName;
+	private final String cartridges;
+	private final String deploymentPackage;
+	private String domain;
+	private String gearProfile;
+	private String environmentVariables;
+	private boolean autoScale;
+	private DeploymentType deploymentType = DeploymentType.GIT;
+	private String openshiftDirectory;
+	private boolean coalesceDeployments;
+
+	private PackMode packMode = PackMode.DEFAULT;
+
+	private int packThreads;
+
+	private boolean explodeArchives;
+
+	private boolean hotSync;
+
+	private String readinessChecks;
+
+	private int readinessTimeout = ReadinessCheck.DEFAULT_TIMEOUT;
+
+	private boolean parallelGears;
+
+	private int gearBatchSize;
+
+	private int preScaleGears;
+
+	@DataBoundConstructor
+	public DeployApplicationStep(String serverName, String appName, String cartridges, String deploymentPackage) {
+		this.serverName = serverName;
+		this.appName = appName;
+		this.cartridges = cartridges;
+		this.deploymentPackage = deploymentPackage;
+	}
+
+	public String getServerName() {
+		return serverName;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public String getCartridges() {
+		return cartridges;
+	}
+
+	public String getDeploymentPackage() {
+		return deploymentPackage;
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	@DataBoundSetter
+	public void setDomain(String domain) {
+		this.domain = domain;
+	}
+
+	public String getGearProfile() {
+		return gearProfile;
+	}
+
+	@DataBoundSetter
+	public void setGearProfile(String gearProfile) {
+		this.gearProfile = gearProfile;
+	}
+
+	public String getEnvironmentVariables() {
+		return environmentVariables;
+	}
+
+	@DataBoundSetter
+	public void setEnvironmentVariables(String environmentVariables) {
+		this.environmentVariables = environmentVariables;
+	}
+
+	public boolean isAutoScale() {
+		return autoScale;
+	}
+
+	@DataBoundSetter
+	public void setAutoScale(boolean autoScale) {
+		this.autoScale = autoScale;
+	}
+
+	public DeploymentType getDeploymentType() {
+		return deploymentType;
+	}
+
+	@DataBoundSetter
+	public void setDeploymentType(DeploymentType deploymentType) {
+		this.deploymentType = deploymentType == null ? DeploymentType.GIT : deploymentType;
+	}
+
+	public String getOpenshiftDirectory() {
+		return openshiftDirectory;
+	}
+
+	@DataBoundSetter
+	public void setOpenshiftDirectory(String openshiftDirectory) {
+		this.openshiftDirectory = openshiftDirectory;
+	}
+
+	public boolean isCoalesceDeployments() {
+		return coalesceDeployments;
+	}
+
+	@DataBoundSetter
+	public void setCoalesceDeployments(boolean coalesceDeployments) {
+		this.coalesceDeployments = coalesceDeployments;
+	}
+
+	public PackMode getPackMode() {
+		return packMode;
+	}
+
+	@DataBoundSetter
+	public void setPackMode(PackMode packMode) {
+		this.packMode = packMode == null ? PackMode.DEFAULT : packMode;
+	}
+
+	public int getPackThreads() {
+		return packThreads;
+	}
+
+	@DataBoundSetter
+	public void setPackThreads(int packThreads) {
+		this.packThreads = packThreads;
+	}
+
+	public boolean isExplodeArchives() {
+		return explodeArchives;
+	}
+
+	@DataBoundSetter
+	public void setExplodeArchives(boolean explodeArchives) {
+		this.explodeArchives = explodeArchives;
+	}
+
+	public boolean isHotSync() {
+		return hotSync;
+	}
+
+	@DataBoundSetter
+	public void setHotSync(boolean hotSync) {
+		this.hotSync = hotSync;
+	}
+
+	public String getReadinessChecks() {
+		return readinessChecks;
+	}
+
+	@DataBoundSetter
+	public void setReadinessChecks(String readinessChecks) {
+		this.readinessChecks = readinessChecks;
+	}
+
+	public int getReadinessTimeout() {
+		return readinessTimeout;
+	}
+
+	@DataBoundSetter
+	public void setReadinessTimeout(int readinessTimeout) {
+		this.readinessTimeout = readinessTimeout;
+	}
+
+	public boolean isParallelGears() {
+		return parallelGears;
+	}
+
+	@DataBoundSetter
+	public void setParallelGears(boolean parallelGears) {
+		this.parallelGears = parallelGears;
+	}
+
+	public int getGearBatchSize() {
+		return gearBatchSize;
+	}
+
+	@DataBoundSetter
+	public void setGearBatchSize(int gearBatchSize) {
+		this.gearBatchSize = gearBatchSize;
+	}
+
+	public int getPreScaleGears() {
+		return preScaleGears;
+	}
+
+	@DataBoundSetter
+	public void setPreScaleGears(int preScaleGears) {
+		this.preScaleGears = preScaleGears;
+	}
+
+	@Extension
+	public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+		public DescriptorImpl() {
+			super(DeployApplicationStepExecution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "openshiftDeploy";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return Utils.getBuildStepName("Deploy Application");
+		}
+
+		public ListBoxModel doFillServerNameItems() {
+			ListBoxModel items = new ListBoxModel();
+
+			for (Server server : Utils.getServers()) {
+				items.add(server.getName(), server.getName());
+			}
+
+			return items;
+		}
+
+		public ListBoxModel doFillDeploymentTypeItems() {
+			ListBoxModel items = new ListBoxModel();
+
+			for (DeploymentType type : DeploymentType.values()) {
+				items.add(type.name(), type.name());
+			}
+
+			return items;
+		}
+	}
+}
@@ -0,0 +1,535 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.jenkinsci.plugins.openshift.util.Utils.abort;
+import static org.jenkinsci.plugins.openshift.util.Utils.findServer;
+import static org.jenkinsci.plugins.openshift.util.Utils.isURL;
+import static org.jenkinsci.plugins.openshift.util.Utils.log;
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.openshift.GitClient.PackMode;
+import org.jenkinsci.plugins.openshift.OpenShiftV2Client.DeploymentType;
+import org.jenkinsci.plugins.openshift.util.JenkinsLogger;
+import org.jenkinsci.plugins.openshift.util.Utils;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+
+import com.google.inject.Inject;
+import com.openshift.client.IApplication;
+
+/**
+ * Runs {@link DeployApplicationStep} in phases on a master thread pool, so the CPS VM thread only
+ * validates the step. Waiting for the gear and for the deployment lock is done by rescheduling a
+ * short probe rather than blocking a thread. As in the build step, the application is provisioned
+ * and deployed under the deployment lock, so that concurrent builds don't create it twice.
+ *
+ * Every phase is idempotent. The pipeline saves the program state only at its own checkpoints, so
+ * the progress is also written to a checkpoint file in the build directory at every phase
+ * transition; {@link #onResume()} continues with the phase which was running at the restart.
+ */
+public class DeployApplicationStepExecution extends AbstractStepExecutionImpl {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = Logger.getLogger(DeployApplicationStepExecution.class.getName());
+
+	private static final String WORK_DIR = "openshift-deployer-workdir";
+
+	private static final long ACCESSIBLE_TIMEOUT = 5*60*1000; // 5 min
+
+	private static final long PROBE_TIMEOUT = 2*1000;
+
+	private static final long PROBE_INTERVAL = 10*1000;
+
+	private static final long LOCK_POLL_INTERVAL = 2*1000;
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+			new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift deployer"));
+
+	enum Phase {STAGE, WAIT_FOR_LOCK, PROVISION, WAIT_FOR_ACCESSIBLE, DEPLOY}
+
+	@Inject(optional=true)
+	private transient DeployApplicationStep step;
+
+	private String serverName;
+	private String domainSetting;
+	private String appName;
+	private String cartridges;
+	private String gearProfile;
+	private HashMap<String, String> environmentVariables;
+	private boolean autoScale;
+	private boolean coalesceDeployments;
+	private PackMode packMode;
+	private int packThreads;
+	private boolean explodeArchives;
+	private boolean hotSync;
+	private String readinessChecks;
+	private int readinessTimeout;
+	private boolean parallelGears;
+	private int gearBatchSize;
+	private int preScaleGears;
+	private String owner;
+	private DeploymentType deploymentType;
+	private String deploymentPackage;
+	private String openshiftDirectory;
+	private String baseDir;
+	private String commitMsg;
+	private String checkpointFile;
+
+	private Progress progress = new Progress();
+
+	private transient List<ArtifactStore.Lease> leases;
+	private transient OpenShiftV2Client client;
+	private transient DeploymentLocks.Ticket ticket;
+	private transient volatile Future<?> task;
+	private transient volatile boolean stopped;
+
+	/**
+	 * The state which changes from phase to phase, written to the checkpoint file.
+	 */
+	static final class Progress implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private Phase phase;
+		private String domain;
+		private String gearAppName;
+		private ArrayList<String> localDeployments;
+		private ArrayList<String> storedDeployments = new ArrayList<String>();
+		private String dotOpenshiftDir;
+		private long accessibleDeadline;
+		private long stageMillis;
+		private long provisionStart;
+		private long provisionMillis;
+	}
+
+	@Override
+	public boolean start() throws Exception {
+		TaskListener listener = getContext().get(TaskListener.class);
+		Run<?, ?> run = getContext().get(Run.class);
+
+		if (isEmpty(step.getAppName())) {
+			abort(listener, "Application name is not specified.");
+		}
+
+		if (isEmpty(step.getCartridges())) {
+			abort(listener, "Cartridges are not specified.");
+		}
+
+		if (isEmpty(step.getDeploymentPackage())) {
+			abort(listener, "Deployment path is not specified.");
+		}
+
+		serverName = step.getServerName();
+		domainSetting = step.getDomain();
+		appName = step.getAppName();
+		cartridges = step.getCartridges();
+		gearProfile = step.getGearProfile();
+		autoScale = step.isAutoScale();
+		coalesceDeployments = step.isCoalesceDeployments();
+		packMode = step.getPackMode();
+		packThreads = step.getPackThreads();
+		explodeArchives = step.isExplodeArchives();
+		hotSync = step.isHotSync();
+		readinessChecks = step.getReadinessChecks();
+		readinessTimeout = step.getReadinessTimeout();
+		parallelGears = step.isParallelGears();
+		gearBatchSize = step.getGearBatchSize();
+		preScaleGears = step.getPreScaleGears();
+		owner = run.getFullDisplayName();
+		deploymentType = step.getDeploymentType();
+		deploymentPackage = step.getDeploymentPackage();
+		openshiftDirectory = step.getOpenshiftDirectory();
+		commitMsg = "deployment added for Jenkins build " + run.getDisplayName() + "#" + run.getNumber();
+		if (!isEmpty(step.getEnvironmentVariables())) {
+			environmentVariables = new HashMap<String, String>(Utils.parseEnvironmentVariables(step.getEnvironmentVariables(), listener));
+		}
+
+		if (findServer(serverName) == null) {
+			abort(listener, "No OpenShift server is selected or none are defined in Jenkins Configuration.");
+		}
+
+		baseDir = new File(run.getRootDir(), WORK_DIR).getAbsolutePath();
+		checkpointFile = new File(run.getRootDir(), "openshift-deploy-" + UUID.randomUUID() + ".xml").getAbsolutePath();
+
+		progress.phase = Phase.STAGE;
+		schedule(0);
+		return false;
+	}
+
+	@Override
+	public void stop(Throwable cause) throws Exception {
+		stopped = true;
+
+		Future<?> current = task;
+		if (current != null) {
+			current.cancel(true);
+		}
+		releaseTicket();
+		releaseLeases();
+		deleteCheckpoint();
+
+		getContext().onFailure(cause);
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+
+		Progress saved = readCheckpoint();
+		if (saved != null) {
+			progress = saved;
+		}
+
+		if (progress.phase != null && progress.phase.compareTo(Phase.WAIT_FOR_LOCK) > 0) {
+			progress.phase = Phase.WAIT_FOR_LOCK; // the lock didn't survive the restart
+			progress.provisionStart = 0;
+		}
+
+		if (progress.phase != null && progress.storedDeployments != null) {
+			// the leases are not persisted, take them again so that the packages aren't evicted
+			leases = new ArrayList<ArtifactStore.Lease>();
+			for (String path : progress.storedDeployments) {
+				File file = new File(path);
+				try {
+					ArtifactStore.Lease lease = ArtifactStore.get().lookup(file.getParentFile().getName(), file.getName());
+					if (lease != null) {
+						leases.add(lease);
+					}
+				} catch (IOException e) {
+					LOG.log(Level.WARNING, "Failed to look up " + path + " in the artifact store", e);
+				}
+			}
+		}
+
+		if (progress.phase != null) {
+			schedule(0);
+		}
+	}
+
+	private List<String> findDeployments(FilePath workspace, TaskListener listener) throws AbortException {
+		if (isURL(deploymentPackage)) {
+			return Arrays.asList(deploymentPackage);
+		}
+
+		if (workspace == null) {
+			abort(listener, "A workspace is required to deploy '" + deploymentPackage + "'. Run the step inside a node block or use a URL.");
+		}
+
+		List<String> deployments = Utils.findDeployments(workspace, deploymentPackage, deploymentType, listener);
+		if (deployments.isEmpty()) {
+			abort(listener, "No Deployments found! (configuredValue: " + deploymentPackage + ")");
+		}
+
+		return deployments;
+	}
+
+	private void schedule(long delay) {
+		if (stopped) {
+			return;
+		}
+
+		final Runnable advance = new Runnable() {
+			public void run() {
+				advance();
+			}
+		};
+
+		if (delay <= 0) {
+			task = EXECUTOR.submit(advance);
+		} else {
+			task = Timer.get().schedule(new Runnable() {
+				public void run() {
+					if (!stopped) {
+						task = EXECUTOR.submit(advance);
+					}
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void advance() {
+		try {
+			TaskListener listener = getContext().get(TaskListener.class);
+			JenkinsLogger log = new JenkinsLogger(listener);
+
+			Server server = findServer(serverName);
+			if (server == null) {
+				throw new AbortException("OpenShift server '" + serverName + "' is not defined in Jenkins Configuration.");
+			}
+			OpenShiftV2Client client = getClient(server, log);
+
+			switch (progress.phase) {
+			case STAGE:
+				stage(client, listener);
+				enter(Phase.WAIT_FOR_LOCK);
+				schedule(0);
+				break;
+
+			case WAIT_FOR_LOCK:
+				DeploymentLocks.Ticket current = getTicket(log);
+				Boolean acquired = current.tryAcquire(coalesceDeployments);
+				if (acquired == null) {
+					schedule(LOCK_POLL_INTERVAL);
+				} else if (acquired) {
+					enter(Phase.PROVISION);
+					schedule(0);
+				} else {
+					log.info("Deployment of '" + appName + "' is skipped. It is superseded by " + current.getSupersededBy());
+					getContext().get(Run.class).addAction(new DeploymentCoalescedAction(appName, current.getSupersededBy()));
+					finish(client, log);
+				}
+				break;
+
+			case PROVISION:
+				if (progress.provisionStart == 0) {
+					progress.provisionStart = System.currentTimeMillis();
+				}
+				// a new application may be taken from a standby pool
+				progress.gearAppName = StandbyPool.get().resolve(client, server, progress.domain, appName, cartridges, gearProfile, autoScale, log);
+				client.getOrCreateApp(progress.gearAppName, progress.domain, Arrays.asList(cartridges.split(" ")), gearProfile, environmentVariables, autoScale, false);
+				progress.accessibleDeadline = System.currentTimeMillis() + ACCESSIBLE_TIMEOUT;
+				enter(Phase.WAIT_FOR_ACCESSIBLE);
+				schedule(0);
+				break;
+
+			case WAIT_FOR_ACCESSIBLE:
+				if (getApp(client).waitForAccessible(PROBE_TIMEOUT)) {
+					progress.provisionMillis = System.currentTimeMillis() - progress.provisionStart;
+					enter(Phase.DEPLOY);
+					schedule(0);
+				} else if (System.currentTimeMillis() > progress.accessibleDeadline) {
+					throw new AbortException("Application '" + appName + "' didn't become accessible in " + ACCESSIBLE_TIMEOUT/1000 + " seconds.");
+				} else {
+					log.info("Waiting for application '" + appName + "' to become accessible");
+					schedule(PROBE_INTERVAL);
+				}
+				break;
+
+			case DEPLOY:
+				ApplicationDeployer deployer = new ApplicationDeployer(getApp(client), deploymentType, cartridges);
+				deployer.setLogger(log);
+				deployer.setServerName(serverName);
+				deployer.setPackOptions(packMode, packThreads);
+				deployer.setExplodeArchives(explodeArchives);
+				deployer.setHotSync(hotSync);
+				deployer.setParallelGears(parallelGears, gearBatchSize);
+				deployer.setPreScale(client, progress.domain, preScaleGears);
+				deployer.setReadinessCheck(readinessChecks, readinessTimeout);
+				deployer.deploy(progress.localDeployments, new File(baseDir), progress.dotOpenshiftDir, commitMsg);
+				if (deployer.getTimeToReady() >= 0) {
+					getContext().get(Run.class).addAction(new ReadinessAction(appName, deployer.getTimeToReady()));
+				}
+
+				DeployTimings timings = new DeployTimings();
+				timings.add(DeployTimings.STAGE, progress.stageMillis);
+				timings.add(DeployTimings.PROVISION, progress.provisionMillis);
+				timings.addAll(deployer.getTimings());
+				DeployHistory.record(getContext().get(Run.class), appName, timings, log);
+				LastDeployments.get().record(serverName, progress.domain, progress.gearAppName == null ? appName : progress.gearAppName);
+				finish(client, log);
+				break;
+			}
+
+			if (stopped) { // while the phase was running
+				releaseTicket();
+				releaseLeases();
+			}
+		} catch (Exception e) {
+			releaseTicket();
+			releaseLeases();
+			if (!stopped) {
+				deleteCheckpoint();
+				LOG.log(Level.FINE, "Deployment of '" + appName + "' failed", e);
+				getContext().onFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Pick the domain and copy the deployment packages and the .openshift directory to the master,
+	 * so that the remaining phases don't need the workspace.
+	 */
+	private void stage(OpenShiftV2Client client, TaskListener listener) throws IOException, InterruptedException {
+		FilePath workspace = getContext().get(FilePath.class);
+
+		String domain = domainSetting;
+		if (isEmpty(domain)) { // pick the domain if only one exists
+			List<String> domains = client.getDomains();
+
+			if (domains.size() > 1) {
+				abort(listener, "Specify the user domain. " + domains.size() + " domains found on the account.");
+			} else if (domains.isEmpty()) {
+				abort(listener, "No domains exist. Create a domain first.");
+			}
+
+			domain = domains.get(0);
+		}
+
+		File workDir = new File(baseDir);
+		if (workDir.exists()) {
+			FileUtils.deleteDirectory(workDir);
+		}
+		workDir.mkdirs();
+
+		List<String> deployments = findDeployments(workspace, listener);
+		log(listener, "Deployments found: " + deployments);
+		if (deploymentType == DeploymentType.BINARY && !BinaryArchive.isNeeded(deployments) && deployments.size() > 1) {
+			log(listener, "Several binary deployment archives found. Deploying " + deployments.get(0));
+			deployments = deployments.subList(0, 1);
+		}
+
+		releaseLeases(); // of an earlier attempt which was interrupted by a restart
+		List<ArtifactStore.Lease> staged = new ArrayList<ArtifactStore.Lease>();
+		synchronized (this) {
+			leases = staged;
+		}
+		long stageStart = System.currentTimeMillis();
+		ArrayList<String> localDeployments = new ArrayList<String>(Utils.copyDeploymenstToMaster(workspace == null ? null : workspace.getChannel(),
+				workspace == null || !workspace.isRemote(), listener, deployments, workDir, deploymentType, staged));
+		long stageMillis = System.currentTimeMillis() - stageStart;
+
+		String dotOpenshiftDir = null;
+		if (!isEmpty(openshiftDirectory)) {
+			if (workspace == null) {
+				abort(listener, "A workspace is required to deploy the .openshift directory. Run the step inside a node block.");
+			}
+
+			FilePath source = workspace.child(openshiftDirectory);
+			File target = new File(workDir, ".openshift");
+			Utils.copyFileFromSlaveToMaster(workspace.getChannel(), source.getRemote(), target.getAbsolutePath());
+			dotOpenshiftDir = target.getAbsolutePath();
+		}
+
+		progress.domain = domain;
+		progress.localDeployments = localDeployments;
+		progress.stageMillis = stageMillis;
+		progress.dotOpenshiftDir = dotOpenshiftDir;
+		progress.storedDeployments = new ArrayList<String>();
+		for (ArtifactStore.Lease lease : staged) {
+			progress.storedDeployments.add(lease.getFile().getAbsolutePath());
+		}
+
+		log(listener, "Deploying to OpenShift at http://" + client.getEndpoint() + ". Be patient! It might take a minute...");
+	}
+
+	private void finish(OpenShiftV2Client client, JenkinsLogger log) {
+		releaseTicket();
+		releaseLeases();
+		deleteCheckpoint();
+		log.info("Broker requests: " + client.getRequests() + " in " + client.getRequestMillis() + " ms");
+		getContext().onSuccess(null);
+	}
+
+	/**
+	 * Move on to the phase and write the progress to the checkpoint file.
+	 */
+	private void enter(Phase phase) {
+		progress.phase = phase;
+		try {
+			new XmlFile(Jenkins.XSTREAM2, new File(checkpointFile)).write(progress);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to write the checkpoint of the deployment of '" + appName + "'", e);
+		}
+	}
+
+	/**
+	 * @return the progress written at the last phase transition or null if there is none
+	 */
+	private Progress readCheckpoint() {
+		if (checkpointFile == null) {
+			return null; // started before checkpoints were written
+		}
+
+		XmlFile file = new XmlFile(Jenkins.XSTREAM2, new File(checkpointFile));
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			return (Progress) file.read();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to read the checkpoint of the deployment of '" + appName + "'", e);
+			return null;
+		}
+	}
+
+	private void deleteCheckpoint() {
+		if (checkpointFile != null) {
+			new File(checkpointFile).delete();
+		}
+	}
+
+	/**
+	 * The deployment is enqueued once and polled until it gets the lock.
+	 */
+	private synchronized DeploymentLocks.Ticket getTicket(JenkinsLogger log) {
+		if (ticket == null) {
+			ticket = DeploymentLocks.enqueue(serverName, progress.domain, appName, owner);
+			String holder = ticket.getHolder();
+			if (holder != null) {
+				log.info("Waiting for the deployment of '" + appName + "' by " + holder + " to finish");
+			}
+		}
+		return ticket;
+	}
+
+	private synchronized void releaseTicket() {
+		if (ticket != null) {
+			ticket.release();
+			ticket = null;
+		}
+	}
+
+	private synchronized void releaseLeases() {
+		if (leases != null) {
+			for (ArtifactStore.Lease lease : leases) {
+				lease.release();
+			}
+			leases = null;
+		}
+	}
+
+	/**
+	 * The client is kept across the phases, so that polling the application doesn't log in to the
+	 * broker again each time.
+	 */
+	private synchronized OpenShiftV2Client getClient(Server server, JenkinsLogger log) {
+		if (client == null) {
+			client = new OpenShiftV2Client(server);
+		}
+		client.setLogger(log);
+		return client;
+	}
+
+	private IApplication getApp(OpenShiftV2Client client) throws AbortException {
+		IApplication app = client.getApp(progress.gearAppName == null ? appName : progress.gearAppName, progress.domain);
+		if (app == null) {
+			throw new AbortException("Application '" + appName + "' doesn't exist in domain '" + progress.domain + "'.");
+		}
+
+		return app;
+	}
+}
@@ -0,0 +1,308 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+/**
+ * The deploy timings of the recent builds of a job, kept in a small text file in the job directory
+ * with one line per deployment, so the trend doesn't need to load any build. The file is compacted
+ * to the most recent {@link #MAX_ENTRIES} deployments when it has grown to twice as many.
+ */
+public final class DeployHistory {
+	static final String FILE_NAME = "openshift-deploy-history.txt";
+
+	static final int MAX_ENTRIES = 200;
+
+	/**
+	 * Deployments a new one is compared to.
+	 */
+	static final int BASELINE_ENTRIES = 30;
+
+	private static final int MIN_BASELINE_ENTRIES = 5;
+
+	/**
+	 * Phases which got slower by less than this are not flagged, however large the ratio.
+	 */
+	private static final long MIN_REGRESSION_MILLIS = 1000;
+
+	private static final Map<File, DeployHistory> HISTORIES = new HashMap<File, DeployHistory>();
+
+	private final File file;
+
+	private LinkedList<Entry> entries;
+
+	private int lines;
+
+	DeployHistory(File file) {
+		this.file = file;
+	}
+
+	public static synchronized DeployHistory forJob(Job<?, ?> job) {
+		File file = new File(job.getRootDir(), FILE_NAME);
+		DeployHistory history = HISTORIES.get(file);
+		if (history == null) {
+			HISTORIES.put(file, history = new DeployHistory(file));
+		}
+		return history;
+	}
+
+	/**
+	 * @return whether a build of the job recorded deploy timings, without loading them
+	 */
+	public static boolean exists(Job<?, ?> job) {
+		return new File(job.getRootDir(), FILE_NAME).exists();
+	}
+
+	/**
+	 * Add the timings of a deployment of the build to the history of its job and flag the phases which
+	 * were slower than usual in the build log and on the build page.
+	 */
+	public static void record(Run<?, ?> run, String appName, DeployTimings timings, Logger log) {
+		log.info("Deploy timings: " + timings);
+
+		List<String> regressions;
+		try {
+			regressions = forJob(run.getParent()).add(run.getNumber(), run.getTimeInMillis(), appName, timings,
+					Utils.getDeployRegressionThreshold());
+		} catch (IOException e) {
+			log.error("Failed to record the deploy timings: " + e.getMessage());
+			regressions = Collections.emptyList();
+		}
+
+		for (String regression : regressions) {
+			log.error("Deployment is slower than usual: " + regression);
+		}
+		run.addAction(new DeployTimingsAction(appName, timings, regressions));
+	}
+
+	/**
+	 * @param thresholdPercent how much slower than the median of the recent deployments of the
+	 * 		application a phase may be, 0 to flag nothing
+	 * @return the phases which were slower than the threshold
+	 */
+	synchronized List<String> add(int build, long timestamp, String appName, DeployTimings timings, int thresholdPercent) throws IOException {
+		load();
+
+		List<String> regressions = new ArrayList<String>();
+		Map<String, Boolean> phases = new LinkedHashMap<String, Boolean>();
+		for (Map.Entry<String, Long> phase : timings.getPhases().entrySet()) {
+			long median = baseline(appName, phase.getKey());
+			boolean regressed = thresholdPercent > 0 && median >= 0
+					&& phase.getValue() > median * (100 + thresholdPercent) / 100
+					&& phase.getValue() - median >= MIN_REGRESSION_MILLIS;
+			if (regressed) {
+				regressions.add(phase.getKey() + " took " + phase.getValue() + " ms, the median of the last "
+						+ BASELINE_ENTRIES + " deployments is " + median + " ms");
+			}
+			phases.put(phase.getKey(), regressed);
+		}
+
+		Entry entry = new Entry(build, timestamp, appName, timings.getBytes(), timings.getPhases(), phases);
+		entries.add(entry);
+		if (entries.size() > MAX_ENTRIES) {
+			entries.removeFirst();
+		}
+
+		if (lines >= 2 * MAX_ENTRIES) {
+			write(entries, false);
+			lines = entries.size();
+		} else {
+			write(Collections.singletonList(entry), true);
+			lines++;
+		}
+
+		return regressions;
+	}
+
+	/**
+	 * @return the median of the phase over the recent deployments of the application, -1 if there are
+	 * 		too few of them to compare to
+	 */
+	private long baseline(String appName, String phase) {
+		List<Long> values = new ArrayList<Long>();
+		for (Iterator<Entry> it = entries.descendingIterator(); it.hasNext() && values.size() < BASELINE_ENTRIES;) {
+			Entry entry = it.next();
+			Long millis = entry.getPhases().get(phase);
+			if (entry.getAppName().equals(appName) && millis != null) {
+				values.add(millis);
+			}
+		}
+
+		return values.size() < MIN_BASELINE_ENTRIES ? -1 : percentile(values, 50);
+	}
+
+	/**
+	 * @return the nearest-rank percentile of the values, 0 if there are none
+	 */
+	static long percentile(List<Long> values, int percentile) {
+		if (values.isEmpty()) {
+			return 0;
+		}
+
+		List<Long> sorted = new ArrayList<Long>(values);
+		Collections.sort(sorted);
+		int rank = (int) Math.ceil(sorted.size() * percentile / 100.0);
+		return sorted.get(Math.max(0, rank - 1));
+	}
+
+	/**
+	 * @return the most recent deployments, oldest first
+	 */
+	public synchronized List<Entry> getEntries(int max) throws IOException {
+		load();
+		return new ArrayList<Entry>(entries.subList(Math.max(0, entries.size() - max), entries.size()));
+	}
+
+	private void load() throws IOException {
+		if (entries != null) {
+			return;
+		}
+
+		LinkedList<Entry> loaded = new LinkedList<Entry>();
+		int read = 0;
+		if (file.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				for (String line; (line = reader.readLine()) != null; read++) {
+					Entry entry = Entry.parse(line);
+					if (entry != null) {
+						loaded.add(entry);
+						if (loaded.size() > MAX_ENTRIES) {
+							loaded.removeFirst();
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		entries = loaded;
+		lines = read;
+	}
+
+	private void write(List<Entry> entries, boolean append) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file, append), "UTF-8");
+		try {
+			for (Entry entry : entries) {
+				writer.write(entry.toLine());
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The timings of one deployment, stored as
+	 * {@code <build> <timestamp> <application> <bytes> <phase>=<ms>[!] ...} where {@code !} flags a regression.
+	 */
+	public static final class Entry {
+		private final int build;
+		private final long timestamp;
+		private final String appName;
+		private final long bytes;
+		private final Map<String, Long> phases;
+		private final Map<String, Boolean> regressed;
+
+		Entry(int build, long timestamp, String appName, long bytes, Map<String, Long> phases, Map<String, Boolean> regressed) {
+			this.build = build;
+			this.timestamp = timestamp;
+			this.appName = appName;
+			this.bytes = bytes;
+			this.phases = new LinkedHashMap<String, Long>(phases);
+			this.regressed = regressed;
+		}
+
+		public int getBuild() {
+			return build;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public String getAppName() {
+			return appName;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return ms per phase in the order of the deployment
+		 */
+		public Map<String, Long> getPhases() {
+			return Collections.unmodifiableMap(phases);
+		}
+
+		public boolean isRegressed(String phase) {
+			return Boolean.TRUE.equals(regressed.get(phase));
+		}
+
+		String toLine() {
+			StringBuilder line = new StringBuilder().append(build).append(' ').append(timestamp).append(' ')
+					.append(appName).append(' ').append(bytes);
+			for (Map.Entry<String, Long> phase : phases.entrySet()) {
+				line.append(' ').append(phase.getKey()).append('=').append(phase.getValue());
+				if (isRegressed(phase.getKey())) {
+					line.append('!');
+				}
+			}
+			return line.toString();
+		}
+
+		/**
+		 * @return the entry or null if the line is damaged
+		 */
+		static Entry parse(String line) {
+			String[] fields = line.trim().split(" ");
+			if (fields.length < 4) {
+				return null;
+			}
+
+			try {
+				Map<String, Long> phases = new LinkedHashMap<String, Long>();
+				Map<String, Boolean> regressed = new HashMap<String, Boolean>();
+				for (int i = 4; i < fields.length; i++) {
+					int separator = fields[i].indexOf('=');
+					if (separator < 0) {
+						return null;
+					}
+					String phase = fields[i].substring(0, separator);
+					String millis = fields[i].substring(separator + 1);
+					if (millis.endsWith("!")) {
+						regressed.put(phase, true);
+						millis = millis.substring(0, millis.length() - 1);
+					}
+					phases.put(phase, Long.parseLong(millis));
+				}
+
+				return new Entry(Integer.parseInt(fields[0]), Long.parseLong(fields[1]), fields[2], Long.parseLong(fields[3]), phases, regressed);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+}
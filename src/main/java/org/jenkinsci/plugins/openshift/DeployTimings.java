@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * How long the phases of a deployment took and how large the deployed packages were.
+ */
+public final class DeployTimings {
+	/** copying the deployment packages to the master */
+	public static final String STAGE = "stage";
+	/** looking up or creating the application until it is accessible */
+	public static final String PROVISION = "provision";
+	/** pushing the deployment to the application */
+	public static final String DEPLOY = "deploy";
+	/** from the end of the deployment until the readiness checks passed */
+	public static final String READY = "ready";
+
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	private long bytes;
+
+	/**
+	 * Add to the time of the phase, phases are kept in the order they were first added.
+	 */
+	public void add(String phase, long millis) {
+		Long previous = phases.get(phase);
+		phases.put(phase, (previous == null ? 0 : previous) + millis);
+	}
+
+	/**
+	 * Add the timings of the phases of another part of the same deployment.
+	 */
+	public void addAll(DeployTimings timings) {
+		for (Map.Entry<String, Long> phase : timings.phases.entrySet()) {
+			add(phase.getKey(), phase.getValue());
+		}
+		bytes += timings.bytes;
+	}
+
+	/**
+	 * @return ms per phase in the order of the deployment
+	 */
+	public Map<String, Long> getPhases() {
+		return Collections.unmodifiableMap(phases);
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @return the total size of the packages, exploded packages counted with all their files
+	 */
+	public static long sizeOf(List<String> localDeployments) {
+		long size = 0;
+		for (String deployment : localDeployments) {
+			File file = new File(deployment);
+			size += file.isDirectory() ? FileUtils.sizeOfDirectory(file) : file.length();
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			text.append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms, ");
+		}
+		return text.append(FileUtils.byteCountToDisplaySize(bytes)).toString();
+	}
+}
@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.model.Action;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The deploy timings of a build and the phases which were slower than in the recent builds of the job.
+ */
+public class DeployTimingsAction implements Action {
+	private final String appName;
+
+	private final Map<String, Long> phases;
+
+	private final long bytes;
+
+	private final List<String> regressions;
+
+	public DeployTimingsAction(String appName, DeployTimings timings, List<String> regressions) {
+		this.appName = appName;
+		this.phases = new LinkedHashMap<String, Long>(timings.getPhases());
+		this.bytes = timings.getBytes();
+		this.regressions = new ArrayList<String>(regressions);
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	/**
+	 * @return ms per phase in the order of the deployment
+	 */
+	public Map<String, Long> getPhases() {
+		return phases;
+	}
+
+	public String getSize() {
+		return FileUtils.byteCountToDisplaySize(bytes);
+	}
+
+	public List<String> getRegressions() {
+		return regressions;
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Deploy timings";
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+}
@@ -0,0 +1,246 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.TransientActionFactory;
+
+/**
+ * The deploy timings per phase of the recent deployments of a job, from its {@link DeployHistory}.
+ */
+public class DeployTrend implements Action {
+	private static final Logger LOG = Logger.getLogger(DeployTrend.class.getName());
+
+	static final int MAX_ENTRIES = 30;
+
+	private final Job<?, ?> job;
+
+	private List<DeployHistory.Entry> entries;
+
+	DeployTrend(Job<?, ?> job) {
+		this.job = job;
+	}
+
+	public Job<?, ?> getJob() {
+		return job;
+	}
+
+	/**
+	 * @return the recent deployments, oldest first
+	 */
+	synchronized List<DeployHistory.Entry> getEntries() {
+		if (entries == null) {
+			try {
+				entries = DeployHistory.forJob(job).getEntries(MAX_ENTRIES);
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Failed to load the deploy history of " + job.getFullName(), e);
+				entries = Collections.emptyList();
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the 50th and 95th percentile of each phase over the recent deployments
+	 */
+	public List<Phase> getPhases() {
+		Map<String, List<Long>> values = new LinkedHashMap<String, List<Long>>();
+		for (DeployHistory.Entry entry : getEntries()) {
+			for (Map.Entry<String, Long> phase : entry.getPhases().entrySet()) {
+				List<Long> phaseValues = values.get(phase.getKey());
+				if (phaseValues == null) {
+					values.put(phase.getKey(), phaseValues = new ArrayList<Long>());
+				}
+				phaseValues.add(phase.getValue());
+			}
+		}
+
+		List<Phase> phases = new ArrayList<Phase>();
+		for (Map.Entry<String, List<Long>> phase : values.entrySet()) {
+			phases.add(new Phase(phase.getKey(), DeployHistory.percentile(phase.getValue(), 50),
+					DeployHistory.percentile(phase.getValue(), 95)));
+		}
+		return phases;
+	}
+
+	/**
+	 * @return the longest deployment of the recent ones in ms, for scaling the chart
+	 */
+	public long getMax() {
+		long max = 1;
+		for (DeployHistory.Entry entry : getEntries()) {
+			max = Math.max(max, total(entry));
+		}
+		return max;
+	}
+
+	/**
+	 * @return the recent deployments as bars of their phases, oldest first
+	 */
+	public List<Bar> getBars() {
+		long max = getMax();
+		List<Bar> bars = new ArrayList<Bar>();
+		for (DeployHistory.Entry entry : getEntries()) {
+			bars.add(new Bar(entry, max));
+		}
+		return bars;
+	}
+
+	private static long total(DeployHistory.Entry entry) {
+		long total = 0;
+		for (long millis : entry.getPhases().values()) {
+			total += millis;
+		}
+		return total;
+	}
+
+	static String color(String phase) {
+		if (DeployTimings.STAGE.equals(phase)) {
+			return "#8ae234";
+		} else if (DeployTimings.PROVISION.equals(phase)) {
+			return "#fcaf3e";
+		} else if (DeployTimings.DEPLOY.equals(phase)) {
+			return "#729fcf";
+		} else if (DeployTimings.READY.equals(phase)) {
+			return "#ad7fa8";
+		}
+		return "#babdb6";
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Deploy timings trend";
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+
+	public static final class Phase {
+		private final String name;
+		private final long p50;
+		private final long p95;
+
+		Phase(String name, long p50, long p95) {
+			this.name = name;
+			this.p50 = p50;
+			this.p95 = p95;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getColor() {
+			return color(name);
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP95() {
+			return p95;
+		}
+	}
+
+	public static final class Bar {
+		private final DeployHistory.Entry entry;
+		private final List<Segment> segments = new ArrayList<Segment>();
+		private boolean regressed;
+
+		Bar(DeployHistory.Entry entry, long max) {
+			this.entry = entry;
+			for (Map.Entry<String, Long> phase : entry.getPhases().entrySet()) {
+				boolean slow = entry.isRegressed(phase.getKey());
+				segments.add(new Segment(phase.getKey(), phase.getValue(), phase.getValue() * 100.0 / max, slow));
+				regressed |= slow;
+			}
+		}
+
+		public DeployHistory.Entry getEntry() {
+			return entry;
+		}
+
+		public List<Segment> getSegments() {
+			return segments;
+		}
+
+		public long getTotal() {
+			return total(entry);
+		}
+
+		public boolean isRegressed() {
+			return regressed;
+		}
+	}
+
+	public static final class Segment {
+		private final String phase;
+		private final long millis;
+		private final double width;
+		private final boolean regressed;
+
+		Segment(String phase, long millis, double width, boolean regressed) {
+			this.phase = phase;
+			this.millis = millis;
+			this.width = width;
+			this.regressed = regressed;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return the share of the longest deployment in percent
+		 */
+		public String getWidth() {
+			return String.format(Locale.ROOT, "%.2f", width);
+		}
+
+		public String getColor() {
+			return color(phase);
+		}
+
+		public boolean isRegressed() {
+			return regressed;
+		}
+	}
+
+	@Extension
+	@SuppressWarnings("rawtypes")
+	public static class Factory extends TransientActionFactory<Job> {
+		@Override
+		public Class<Job> type() {
+			return Job.class;
+		}
+
+		@Override
+		public Collection<? extends Action> createFor(Job target) {
+			if (!DeployHistory.exists(target)) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(new DeployTrend(target));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.model.Action;
+
+/**
+ * Marks a build whose deployment was skipped because a newer deployment to the same
+ * application was queued behind it.
+ */
+public class DeploymentCoalescedAction implements Action {
+	private final String appName;
+
+	private final String supersededBy;
+
+	public DeploymentCoalescedAction(String appName, String supersededBy) {
+		this.appName = appName;
+		this.supersededBy = supersededBy;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public String getSupersededBy() {
+		return supersededBy;
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Deployment coalesced";
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+}
@@ -0,0 +1,183 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Serializes deployments to the same application. Deployments to one (server, domain, application)
+ * are granted the lock in the order they were enqueued. With the "latest wins" policy a waiting
+ * deployment gives up as soon as a newer one is enqueued behind it, so a burst of deployments to an
+ * application is coalesced into the last one.
+ */
+final class DeploymentLocks {
+	private static final Map<String, Slot> SLOTS = new HashMap<String, Slot>();
+
+	private DeploymentLocks() {
+	}
+
+	/**
+	 * Enqueue a deployment. The returned ticket must be released in a finally block, whether or not
+	 * it was acquired.
+	 *
+	 * @param owner a human readable description of the deployment e.g. the build name
+	 */
+	public static Ticket enqueue(String serverName, String domain, String appName, String owner) {
+		String key = serverName + "/" + domain + "/" + appName;
+
+		synchronized (SLOTS) {
+			Slot slot = SLOTS.get(key);
+			if (slot == null) {
+				slot = new Slot(key);
+				SLOTS.put(key, slot);
+			}
+
+			synchronized (slot) {
+				slot.users++;
+				slot.lastTicket++;
+				slot.lastOwner = owner;
+				slot.waiting.add(slot.lastTicket);
+				slot.notifyAll(); // wake up waiting deployments that are superseded now
+
+				return new Ticket(slot, slot.lastTicket);
+			}
+		}
+	}
+
+	private static void leave(Slot slot) {
+		synchronized (SLOTS) {
+			synchronized (slot) {
+				slot.users--;
+				if (slot.users == 0) {
+					SLOTS.remove(slot.key);
+				}
+			}
+		}
+	}
+
+	private static class Slot {
+		private final String key;
+		private int users;
+		private long lastTicket;
+		/**
+		 * Tickets which neither hold the lock nor gave up yet, the lock goes to the lowest one
+		 */
+		private final TreeSet<Long> waiting = new TreeSet<Long>();
+		private String lastOwner;
+		private boolean locked;
+		private String holder;
+
+		public Slot(String key) {
+			this.key = key;
+		}
+	}
+
+	static final class Ticket {
+		private final Slot slot;
+		private final long number;
+		private final String owner;
+		private boolean held;
+		private boolean released;
+		private String supersededBy;
+
+		private Ticket(Slot slot, long number) {
+			this.slot = slot;
+			this.number = number;
+			this.owner = slot.lastOwner;
+		}
+
+		/**
+		 * Block until the lock is granted. It is granted to the waiting tickets in the order they
+		 * were enqueued, not in the order their threads wake up.
+		 *
+		 * @param latestWins give up if a newer deployment is enqueued while waiting
+		 * @return false if the deployment is superseded by a newer one
+		 */
+		public boolean acquire(boolean latestWins) throws InterruptedException {
+			synchronized (slot) {
+				Boolean acquired;
+				while ((acquired = tryAcquire(latestWins)) == null) {
+					slot.wait();
+				}
+				return acquired;
+			}
+		}
+
+		/**
+		 * Take the lock if it is the turn of this ticket, without waiting. Callers which don't block a
+		 * thread while waiting call it again later.
+		 *
+		 * @param latestWins give up if a newer deployment is enqueued
+		 * @return true if the lock is granted, false if the deployment is superseded by a newer one
+		 * 		and null if it has to wait
+		 */
+		public Boolean tryAcquire(boolean latestWins) {
+			synchronized (slot) {
+				if (held) {
+					return true;
+				}
+
+				if (latestWins && number < slot.lastTicket) {
+					supersededBy = slot.lastOwner;
+					leaveQueue();
+					return false;
+				}
+
+				if (!slot.locked && slot.waiting.first() == number) {
+					slot.waiting.remove(number);
+					slot.locked = true;
+					slot.holder = owner;
+					held = true;
+					return true;
+				}
+
+				return null;
+			}
+		}
+
+		/**
+		 * @return the deployment currently holding the lock or null if the lock is free
+		 */
+		public String getHolder() {
+			synchronized (slot) {
+				return slot.locked ? slot.holder : null;
+			}
+		}
+
+		/**
+		 * @return the deployment which superseded this one, if {@link #acquire(boolean)} returned false
+		 */
+		public String getSupersededBy() {
+			return supersededBy;
+		}
+
+		public void release() {
+			synchronized (slot) {
+				if (released) {
+					return;
+				}
+				released = true;
+
+				if (held) {
+					held = false;
+					slot.locked = false;
+					slot.holder = null;
+					slot.notifyAll();
+				} else {
+					leaveQueue();
+				}
+			}
+
+			leave(slot);
+		}
+
+		/**
+		 * Let the next ticket in line take the lock, if this one was first.
+		 */
+		private void leaveQueue() {
+			if (slot.waiting.remove(number)) {
+				slot.notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+
+/**
+ * Brings the .openshift directory of a working copy up to date with a source directory, which may
+ * be on a slave node. The git blob ids and file modes of the source files are computed where the
+ * files are and compared with the tree committed in the gear repo, so only new and changed files
+ * are copied. A change of the executable bit alone counts, since the action hooks must be
+ * executable. Files which exist only in the repo are kept, as they were before.
+ */
+class DotOpenshiftSync {
+	private static final String DOT_OPENSHIFT = ".openshift";
+
+	/**
+	 * The mode of a source file whose executable bit isn't known, on Windows.
+	 */
+	private static final String UNKNOWN_MODE = "?";
+
+	private Logger log = Logger.NOOP;
+
+	public void setLogger(Logger log) {
+		this.log = log;
+	}
+
+	/**
+	 * @param source the .openshift directory or a directory containing it
+	 */
+	public void sync(FilePath source, Git git, File workingCopyDir) throws IOException {
+		try {
+			FilePath dotOpenshift = resolve(source);
+			if (dotOpenshift == null) {
+				log.info("No .openshift directory found in " + source);
+				return;
+			}
+
+			Map<String, String> sourceIds = dotOpenshift.act(new BlobIds());
+			Map<String, String> committedIds = committedBlobIds(git);
+
+			int copied = 0;
+			File target = new File(workingCopyDir, DOT_OPENSHIFT);
+			for (Map.Entry<String, String> e : sourceIds.entrySet()) {
+				if (isUnchanged(e.getValue(), committedIds.get(e.getKey()))) {
+					continue;
+				}
+
+				File file = new File(target, e.getKey());
+				file.getParentFile().mkdirs();
+				dotOpenshift.child(e.getKey()).copyToWithPermission(new FilePath(file));
+				copied++;
+			}
+
+			log.info("Synchronized .openshift: " + copied + " of " + sourceIds.size() + " files changed");
+			Metrics.add("openshift_dot_openshift_files_copied_total", copied);
+			Metrics.add("openshift_dot_openshift_files_skipped_total", sourceIds.size() - copied);
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while synchronizing the .openshift directory", e);
+		}
+	}
+
+	private FilePath resolve(FilePath source) throws IOException, InterruptedException {
+		if (!source.exists()) {
+			return null;
+		}
+
+		if (source.getName().endsWith("openshift")) {
+			return source;
+		}
+
+		for (FilePath child : source.list()) {
+			if (child.getName().endsWith("openshift") && child.isDirectory()) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the mode and blob id of the files under .openshift in HEAD by path relative to .openshift
+	 */
+	private Map<String, String> committedBlobIds(Git git) throws IOException {
+		Map<String, String> ids = new HashMap<String, String>();
+
+		ObjectId head = git.getRepository().resolve(Constants.HEAD);
+		if (head == null) { // empty repo
+			return ids;
+		}
+
+		RevWalk revWalk = new RevWalk(git.getRepository());
+		TreeWalk treeWalk = new TreeWalk(git.getRepository());
+		try {
+			treeWalk.addTree(revWalk.parseCommit(head).getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(PathFilter.create(DOT_OPENSHIFT));
+			while (treeWalk.next()) {
+				String path = treeWalk.getPathString();
+				if (path.startsWith(DOT_OPENSHIFT + "/")) {
+					ids.put(path.substring(DOT_OPENSHIFT.length() + 1), entry(Integer.toOctalString(treeWalk.getRawMode(0)), treeWalk.getObjectId(0).name()));
+				}
+			}
+		} finally {
+			treeWalk.release();
+			revWalk.release();
+		}
+		return ids;
+	}
+
+	/**
+	 * @param source the mode and blob id of the source file
+	 * @param committed the mode and blob id of the committed file or null
+	 */
+	static boolean isUnchanged(String source, String committed) {
+		if (committed == null) {
+			return false;
+		}
+
+		if (source.startsWith(UNKNOWN_MODE + " ")) {
+			return committed.endsWith(source.substring(UNKNOWN_MODE.length()));
+		}
+		return source.equals(committed);
+	}
+
+	/**
+	 * @return the mode git gives to the file and its blob id
+	 */
+	static String entry(File file) throws IOException {
+		String mode;
+		if (File.pathSeparatorChar == ';') { // Windows
+			mode = UNKNOWN_MODE;
+		} else {
+			mode = Integer.toOctalString((file.canExecute() ? FileMode.EXECUTABLE_FILE : FileMode.REGULAR_FILE).getBits());
+		}
+		return entry(mode, blobId(file));
+	}
+
+	private static String entry(String mode, String blobId) {
+		return mode + " " + blobId;
+	}
+
+	/**
+	 * The id git gives to a file with the given content.
+	 */
+	static String blobId(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(("blob " + file.length() + "\0").getBytes("US-ASCII"));
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				md.update(buffer, 0, n);
+			}
+			return Util.toHexString(md.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static final class BlobIds extends MasterToSlaveFileCallable<Map<String, String>> {
+		private static final long serialVersionUID = 1L;
+
+		public Map<String, String> invoke(File dir, VirtualChannel channel) throws IOException {
+			Map<String, String> ids = new TreeMap<String, String>();
+			collect(dir, "", ids);
+			return ids;
+		}
+
+		private void collect(File dir, String prefix, Map<String, String> ids) throws IOException {
+			File[] children = dir.listFiles();
+			if (children == null) {
+				return;
+			}
+
+			for (File child : children) {
+				if (child.isDirectory()) {
+					collect(child, prefix + child.getName() + "/", ids);
+				} else {
+					ids.put(prefix + child.getName(), entry(child));
+				}
+			}
+		}
+	}
+}
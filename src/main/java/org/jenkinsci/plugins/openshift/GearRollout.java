@@ -0,0 +1,192 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+import com.openshift.client.IApplication;
+import com.openshift.client.IGear;
+import com.openshift.client.IGearGroup;
+import com.openshift.client.cartridge.ICartridge;
+
+/**
+ * Binary deployment of a scaled application which streams the deployment to every web gear over
+ * its own SSH connection instead of only to the head gear. Gears are deployed in batches of
+ * concurrent deployments, so a batch size smaller than the number of gears gives a rolling deployment.
+ * The head gear is deployed in the last batch. A failed batch stops the rollout.
+ */
+class GearRollout {
+	private Logger log = Logger.NOOP;
+
+	private final IApplication app;
+
+	private final int batchSize;
+
+	private String serverName = "";
+
+	/**
+	 * @param batchSize gears deployed concurrently, 0 for all gears at once
+	 */
+	public GearRollout(IApplication app, int batchSize) {
+		this.app = app;
+		this.batchSize = batchSize;
+	}
+
+	public void setLogger(Logger log) {
+		this.log = log;
+	}
+
+	public void setServerName(String serverName) {
+		this.serverName = serverName;
+	}
+
+	/**
+	 * @return the SSH URLs of the gears running the web cartridge of the application, head gear last
+	 */
+	List<String> getWebGears() {
+		String webCartridge = app.getCartridge().getName();
+		List<String> gears = new ArrayList<String>();
+		for (IGearGroup group : app.getGearGroups()) {
+			boolean web = false;
+			for (ICartridge cartridge : group.getCartridges()) {
+				web |= webCartridge.equals(cartridge.getName());
+			}
+
+			if (web) {
+				for (IGear gear : group.getGears()) {
+					gears.add(gear.getSshUrl());
+				}
+			}
+		}
+
+		return headGearLast(gears, app.getSshUrl());
+	}
+
+	static List<String> headGearLast(List<String> gears, String headGear) {
+		List<String> ordered = new ArrayList<String>(gears);
+		if (ordered.remove(headGear)) {
+			ordered.add(headGear);
+		}
+		return ordered;
+	}
+
+	/**
+	 * @param payload written once per gear, possibly concurrently
+	 */
+	public void deploy(SSHClient.Payload payload) throws IOException {
+		deploy(getWebGears(), payload);
+	}
+
+	/**
+	 * @throws IOException if the deployment to any gear failed. No further batches are started then.
+	 */
+	void deploy(List<String> gears, final SSHClient.Payload payload) throws IOException {
+		int size = batchSize <= 0 ? gears.size() : Math.min(batchSize, gears.size());
+		log.info("Deploying " + payload.getDescription() + " to " + gears.size() + " gears, " + size + " at a time");
+
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, size),
+				new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift gear deployment"));
+		try {
+			for (int from = 0; from < gears.size(); from += size) {
+				Map<String, Future<String>> batch = new LinkedHashMap<String, Future<String>>();
+				for (final String gear : gears.subList(from, Math.min(from + size, gears.size()))) {
+					batch.put(gear, executor.submit(new Callable<String>() {
+						public String call() throws IOException {
+							return deployGear(gear, payload);
+						}
+					}));
+				}
+
+				waitForBatch(batch);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long millis = System.currentTimeMillis() - start;
+		log.info("Deployed to " + gears.size() + " gears in " + millis + " ms");
+		Metrics.add("openshift_gear_deployments_total", gears.size());
+		Metrics.add("openshift_gear_rollout_millis_total", millis);
+	}
+
+	/**
+	 * Waits for every gear of the batch, also after a failure, so that the log shows the outcome of each.
+	 */
+	private void waitForBatch(Map<String, Future<String>> batch) throws IOException {
+		List<String> failed = new ArrayList<String>();
+		IOException failure = null;
+		for (Map.Entry<String, Future<String>> gear : batch.entrySet()) {
+			try {
+				log.info("[" + gear.getKey() + "] " + gear.getValue().get());
+			} catch (ExecutionException e) {
+				log.error("[" + gear.getKey() + "] " + e.getCause().getMessage());
+				failed.add(gear.getKey());
+				if (failure == null) {
+					failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause().getMessage(), e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while deploying to " + gear.getKey(), e);
+			}
+		}
+
+		if (failure != null) {
+			throw new IOException("Deployment failed on " + failed.size() + " of " + batch.size() + " gears of the batch: "
+					+ failed + ". " + failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * @return the output of the deployment on the gear
+	 */
+	private String deployGear(final String gear, SSHClient.Payload payload) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		SSHClient sshClient = sshClient(gear, new Logger() {
+			public void info(String msg) {
+				log.info("[" + gear + "] " + msg);
+			}
+
+			public void error(String msg) {
+				log.error("[" + gear + "] " + msg);
+			}
+
+			public OutputStream getOutputStream() {
+				return output; // the standard error of the deployment
+			}
+		});
+
+		int status = sshClient.exec(SSHClient.BINARY_DEPLOY_CMD, payload, output);
+		if (status != 0) {
+			throw new IOException("Deployment to " + gear + " failed with exit status " + status + ": " + output.toString("UTF-8"));
+		}
+		return output.toString("UTF-8");
+	}
+
+	/**
+	 * @return a client for the gear which logs to the given logger
+	 */
+	SSHClient sshClient(String gear, Logger gearLog) {
+		SSHClient sshClient = new SSHClient(app, gear);
+		sshClient.setLogger(gearLog);
+		sshClient.setSSHPrivateKey(Utils.getSSHPrivateKey());
+		sshClient.setServerName(serverName);
+		return sshClient;
+	}
+}
@@ -1,34 +1,58 @@
 package org.jenkinsci.plugins.openshift;
 
-import static org.apache.commons.io.FileUtils.copyDirectoryToDirectory;
-import static org.apache.commons.io.FileUtils.copyFile;
-import static org.apache.commons.io.FileUtils.copyFileToDirectory;
 import static org.apache.commons.io.FileUtils.forceDelete;
 import static org.apache.commons.io.FilenameUtils.getName;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
+import hudson.FilePath;
+
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.TransportConfigCallback;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.lib.TextProgressMonitor;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.JschConfigSessionFactory;
 import org.eclipse.jgit.transport.OpenSshConfig.Host;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteSession;
 import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.util.FS;
+import org.jenkinsci.plugins.openshift.util.CountingRemoteSession;
+import org.jenkinsci.plugins.openshift.util.FileStaging;
 import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Retry;
+import org.jenkinsci.plugins.openshift.util.ScopedJSchLogger;
 
 import com.jcraft.jsch.Session;
 import com.openshift.client.IApplication;
@@ -38,10 +62,41 @@ import org.jenkinsci.plugins.openshift.util.Utils;
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
  */
 public class GitClient {
+	/**
+	 * How hard JGit works on the pack when pushing. WAR, EAR and JAR files are zip archives, so
+	 * deflating and delta compressing them again costs CPU time and gains next to nothing.
+	 */
+	public static enum PackMode {
+		/** JGit defaults */
+		DEFAULT,
+		/** fastest deflate level and no delta search for files over 1 MB */
+		FAST,
+		/** objects are stored without compression or delta search */
+		STORE
+	}
+
+	private static final int FAST_BIG_FILE_THRESHOLD = 1024 * 1024;
+
 	private Logger log = Logger.NOOP;
 	
 	private IApplication app;
 	
+	private Retry retry = Retry.DEFAULT;
+	
+	private int retries;
+	
+	private PackMode packMode = PackMode.DEFAULT;
+	
+	private int packThreads;
+	
+	private final AtomicLong bytesSent = new AtomicLong();
+	
+	private boolean explodeArchives;
+	
+	private FilePath dotOpenshiftSource;
+	
+	private String serverName = "";
+	
 	public GitClient(IApplication app) {
 		super();
 		this.app = app;
@@ -51,6 +106,40 @@ public class GitClient {
 		this.log = log;
 	}
 
+	/**
+	 * @param serverName the server of the application, labels the metrics of the client
+	 */
+	public void setServerName(String serverName) {
+		this.serverName = serverName;
+	}
+
+	public void setPackMode(PackMode packMode) {
+		this.packMode = packMode == null ? PackMode.DEFAULT : packMode;
+	}
+
+	/**
+	 * @param explodeArchives commit the contents of WAR and EAR files instead of the archives, so that
+	 *                        a push only carries the entries which changed since the last deployment
+	 */
+	public void setExplodeArchives(boolean explodeArchives) {
+		this.explodeArchives = explodeArchives;
+	}
+
+	/**
+	 * @param dotOpenshiftSource the .openshift directory or a directory containing it, which may be on a
+	 *                           slave node. Takes precedence over the path passed to {@link #deploy}.
+	 */
+	public void setDotOpenshiftSource(FilePath dotOpenshiftSource) {
+		this.dotOpenshiftSource = dotOpenshiftSource;
+	}
+
+	/**
+	 * @param packThreads threads used for delta search, 0 to use one per processor
+	 */
+	public void setPackThreads(int packThreads) {
+		this.packThreads = Math.max(0, packThreads);
+	}
+
 	
 	public void deploy(List<String> deployments, File workingCopyDir, String relativeDeployDir) 
 			throws IOException, GitAPIException {
@@ -85,22 +174,16 @@ public class GitClient {
 
 		// clone repo
 		log.info("Cloning '" + app.getName() + "' [" + app.getGitUrl() + "] to " + workingCopyDir);
-		SshSessionFactory.setInstance(new JschConfigSessionFactory() {
-			@Override
-			protected void configure(Host hc, Session session) {
-				session.setConfig("StrictHostKeyChecking", "no");
-			}
-
-			// Use private key defined in Jenkins System Configuration
-			@Override
-			protected JSch createDefaultJSch( FS fs ) throws JSchException {
-				JSch defaultJSch = super.createDefaultJSch( fs );
-				defaultJSch.addIdentity(Utils.getSSHPrivateKey() );
-				return defaultJSch;
-			}
-
-		});
-		Git git = Git.cloneRepository().setURI(app.getGitUrl()).setDirectory(workingCopyDir).call();
+		TransportConfigCallback transportConfig = createTransportConfig(null);
+		long cloneStart = System.currentTimeMillis();
+		boolean cloned = false;
+		Git git;
+		try {
+			git = cloneRepository(workingCopyDir, transportConfig);
+			cloned = true;
+		} finally {
+			record("clone", System.currentTimeMillis() - cloneStart, cloned);
+		}
 
 		// clean git repo
 		File[] removeList = workingCopyDir.listFiles();
@@ -113,41 +196,18 @@ public class GitClient {
 
 		// copy deployment
 		File dest = new File(workingCopyDir.getAbsoluteFile() + relativeDeployDir);
-		copyDeploymentPackages(deployments, dest);
+		copyDeploymentPackages(deployments, dest, relativeDeployDir.endsWith("webapps"));
 
 		// Handle OpenShift Directory
-		File dotOpenshiftSource = null;
-
-		if(!isEmpty(openshiftDirectory)) {
-			if (!openshiftDirectory.endsWith("openshift")) {
-                // Examine the current directory if it contains an openshift or .openshift directory
-                File directory = new File(openshiftDirectory);
-
-                File[] dirContents = directory.listFiles(new FilenameFilter() {
-                    public boolean accept(File dir, String name) {
-                        if (name.equals(".") || name.equals(".."))
-                            return false;
-                        else
-                            return true;
-                    }
-                });
-
-                for (File file : dirContents) {
-                    if(file.getName().endsWith("openshift")) {
-                        dotOpenshiftSource = file;
-                        break;
-                    }
-                }
-
-            } else {
-				dotOpenshiftSource = new File(openshiftDirectory); // Absolute Path
-			}
+		FilePath dotOpenshiftSource = this.dotOpenshiftSource;
+		if (dotOpenshiftSource == null && !isEmpty(openshiftDirectory)) {
+			dotOpenshiftSource = new FilePath(new File(openshiftDirectory)); // Absolute Path
+		}
 
-			if (dotOpenshiftSource != null && dotOpenshiftSource.exists()) {
-    			for (File source : dotOpenshiftSource.listFiles()) {
-                    copyDirectoryToDirectory(source, new File(workingCopyDir + File.separator + ".openshift"));
-    			}
-			}
+		if (dotOpenshiftSource != null) {
+			DotOpenshiftSync sync = new DotOpenshiftSync();
+			sync.setLogger(log);
+			sync.sync(dotOpenshiftSource, git, workingCopyDir);
 		}
 
 		// add directories
@@ -157,25 +217,240 @@ public class GitClient {
 		log.info("Committing repo");
 		git.commit().setAll(true).setMessage(commitMsg).call();
 
-		log.info("Pushing to upstream");
-		PushCommand pushCommand = git.push();
-		pushCommand.setProgressMonitor(new TextProgressMonitor(new OutputStreamWriter(System.out)));
-		Iterable<PushResult> pushResults = pushCommand.call();
+		log.info("Pushing to upstream (pack mode " + packMode + ")");
+		long start = System.nanoTime();
+		boolean pushed = false;
+		Iterable<PushResult> pushResults;
+		try {
+			pushResults = push(git, createTransportConfig(createPackConfig(git)));
+			pushed = true;
+		} finally {
+			record("push", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), pushed);
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 		for(PushResult result : pushResults)
 			System.out.println(result.toString());
+
+		log.info("Pushed " + FileUtils.byteCountToDisplaySize(bytesSent.get()) + " in " + millis + " ms");
+		Metrics.add("openshift_git_push_bytes_total", bytesSent.get(), "server", serverName, "pack_mode", packMode.name());
+		Metrics.add("openshift_git_push_millis_total", millis, "server", serverName, "pack_mode", packMode.name());
+	}
+
+	private void record(String operation, long millis, boolean succeeded) {
+		Metrics.increment("openshift_git_operations_total", "server", serverName, "operation", operation, "result", succeeded ? "success" : "failure");
+		Metrics.observe("openshift_git_duration_millis", millis, "server", serverName, "operation", operation);
 	}
 
-	private void copyDeploymentPackages(List<String> deployments, File dest) throws IOException {
+	private Git cloneRepository(File workingCopyDir, TransportConfigCallback transportConfig) throws IOException, GitAPIException {
+		for (int attempt = 1; ; attempt++) {
+			ScopedJSchLogger.bind(log);
+			try {
+				return Git.cloneRepository().setURI(app.getGitUrl()).setDirectory(workingCopyDir)
+						.setTransportConfigCallback(transportConfig).call();
+			} catch (TransportException e) {
+				if (!retry.shouldRetry(attempt, e)) {
+					throw e;
+				}
+				retries++;
+				Metrics.increment("openshift_git_retries_total", "server", serverName, "operation", "clone");
+				retry.backoff(attempt, "Git clone", e, log);
+
+				// start over with an empty working copy
+				if (workingCopyDir.exists()) {
+					FileUtils.deleteDirectory(workingCopyDir);
+				}
+			} finally {
+				ScopedJSchLogger.unbind();
+			}
+		}
+	}
+
+	/**
+	 * Pushing the same commit again is harmless, so a push that failed in transport is retried as a whole.
+	 */
+	private Iterable<PushResult> push(Git git, TransportConfigCallback transportConfig) throws IOException, GitAPIException {
+		for (int attempt = 1; ; attempt++) {
+			ScopedJSchLogger.bind(log);
+			try {
+				bytesSent.set(0); // only count the last attempt
+				PushCommand pushCommand = git.push();
+				pushCommand.setProgressMonitor(new TextProgressMonitor(new OutputStreamWriter(System.out)));
+				pushCommand.setTransportConfigCallback(transportConfig);
+				return pushCommand.call();
+			} catch (TransportException e) {
+				if (!retry.shouldRetry(attempt, e)) {
+					throw e;
+				}
+				retries++;
+				Metrics.increment("openshift_git_retries_total", "server", serverName, "operation", "push");
+				retry.backoff(attempt, "Git push", e, log);
+			} finally {
+				ScopedJSchLogger.unbind();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of clones and pushes that were retried
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Start from the repository's own pack settings and override them according to the pack mode.
+	 * The compression level applies to the whole pack, so it can't be chosen per file.
+	 */
+	private PackConfig createPackConfig(Git git) {
+		PackConfig packConfig = new PackConfig(git.getRepository());
+		packConfig.setThreads(packThreads);
+
+		switch (packMode) {
+		case FAST:
+			packConfig.setCompressionLevel(Deflater.BEST_SPEED);
+			packConfig.setBigFileThreshold(FAST_BIG_FILE_THRESHOLD); // big files are not delta compressed
+			break;
+		case STORE:
+			packConfig.setCompressionLevel(Deflater.NO_COMPRESSION);
+			packConfig.setDeltaCompress(false);
+			break;
+		default:
+			break;
+		}
+
+		return packConfig;
+	}
+
+	/**
+	 * Each clone and push carries its own SSH session factory instead of replacing the
+	 * JVM-wide {@link org.eclipse.jgit.transport.SshSessionFactory} instance, so that
+	 * concurrent deployments don't interfere with each other.
+	 *
+	 * @param packConfig pack settings for pushing or null for JGit defaults
+	 */
+	private TransportConfigCallback createTransportConfig(final PackConfig packConfig) {
+		final SshSessionFactory sessionFactory = new JschConfigSessionFactory() {
+			@Override
+			protected void configure(Host hc, Session session) {
+				session.setConfig("StrictHostKeyChecking", "no");
+			}
+
+			// count the bytes sent to report the pack size
+			@Override
+			public synchronized RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+					throws org.eclipse.jgit.errors.TransportException {
+				return new CountingRemoteSession(super.getSession(uri, credentialsProvider, fs, tms), bytesSent);
+			}
+
+			// Use private key defined in Jenkins System Configuration
+			@Override
+			protected JSch createDefaultJSch( FS fs ) throws JSchException {
+				JSch defaultJSch = super.createDefaultJSch( fs );
+				defaultJSch.addIdentity(Utils.getSSHPrivateKey() );
+				return defaultJSch;
+			}
+		};
+
+		return new TransportConfigCallback() {
+			public void configure(Transport transport) {
+				if (transport instanceof SshTransport) {
+					((SshTransport) transport).setSshSessionFactory(sessionFactory);
+				}
+
+				if (packConfig != null) {
+					transport.setPackConfig(packConfig);
+				}
+			}
+		};
+	}
+
+	private void copyDeploymentPackages(List<String> deployments, File dest, boolean tomcat) throws IOException {
 		if (deployments.size() == 1) {
 			String deployment = deployments.get(0);
-			File destFile = new File(dest, "ROOT." + FilenameUtils.getExtension(deployment));		
-			copyFile(new File(deployment), destFile);
-			log.info("Deployment '" + FilenameUtils.getName(deployment) + "' copied to '" + destFile.getName() + "'");
+			String extension = FilenameUtils.getExtension(deployment);
+			if (explode(deployment)) {
+				// tomcat takes the context from the directory name, jboss/wildfly from the extension
+				File destDir = new File(dest, tomcat ? "ROOT" : "ROOT." + extension);
+				explodeDeployment(new File(deployment), destDir, tomcat);
+				log.info("Deployment '" + FilenameUtils.getName(deployment) + "' exploded to '" + destDir.getName() + "'");
+				return;
+			}
+
+			File destFile = new File(dest, "ROOT." + extension);		
+			FileStaging.Result staged = FileStaging.stage(new File(deployment), destFile);
+			log.info("Deployment '" + FilenameUtils.getName(deployment) + "' copied to '" + destFile.getName() + "' (" + staged + ")");
 		} else {
 			for (String deployment : deployments) {
-				copyFileToDirectory(new File(deployment), dest);
-				log.info("Deployment '" + getName(deployment) + "' copied to '" + dest.getName() + "'");
+				if (explode(deployment)) {
+					File destDir = new File(dest, tomcat ? FilenameUtils.getBaseName(deployment) : getName(deployment));
+					explodeDeployment(new File(deployment), destDir, tomcat);
+					log.info("Deployment '" + getName(deployment) + "' exploded to '" + destDir.getName() + "'");
+					continue;
+				}
+
+				FileStaging.Result staged = FileStaging.stage(new File(deployment), new File(dest, getName(deployment)));
+				log.info("Deployment '" + getName(deployment) + "' copied to '" + dest.getName() + "' (" + staged + ")");
+			}
+		}
+	}
+
+	private boolean explode(String deployment) {
+		return explodeArchives && FilenameUtils.isExtension(deployment.toLowerCase(), new String[] {"war", "ear"});
+	}
+
+	private void explodeDeployment(File archive, File destDir, boolean tomcat) throws IOException {
+		explode(archive, destDir);
+
+		// jboss/wildfly only deploys exploded archives which have a marker
+		if (!tomcat) {
+			File marker = new File(destDir.getParentFile(), destDir.getName() + ".dodeploy");
+			FileUtils.writeStringToFile(marker, destDir.getName());
+			marker.setLastModified(0);
+		}
+	}
+
+	/**
+	 * Extract an archive in entry name order. Every file gets the modification time of its entry, so
+	 * extracting the same archive twice gives identical trees.
+	 */
+	static void explode(File archive, File destDir) throws IOException {
+		ZipFile zip = new ZipFile(archive);
+		try {
+			List<ZipEntry> entries = new ArrayList<ZipEntry>();
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+				entries.add(e.nextElement());
+			}
+			Collections.sort(entries, new Comparator<ZipEntry>() {
+				public int compare(ZipEntry e1, ZipEntry e2) {
+					return e1.getName().compareTo(e2.getName());
+				}
+			});
+
+			String destPath = destDir.getCanonicalPath() + File.separator;
+			for (ZipEntry entry : entries) {
+				File file = new File(destDir, entry.getName());
+				if (!file.getCanonicalPath().startsWith(destPath)) {
+					throw new IOException("Entry '" + entry.getName() + "' is outside of the archive " + archive.getName());
+				}
+
+				if (entry.isDirectory()) {
+					file.mkdirs();
+					continue;
+				}
+
+				file.getParentFile().mkdirs();
+				InputStream in = zip.getInputStream(entry);
+				OutputStream out = new FileOutputStream(file);
+				try {
+					IOUtils.copy(in, out);
+				} finally {
+					IOUtils.closeQuietly(out);
+					IOUtils.closeQuietly(in);
+				}
+				file.setLastModified(Math.max(0, entry.getTime()));
 			}
+		} finally {
+			zip.close();
 		}
 	}
 
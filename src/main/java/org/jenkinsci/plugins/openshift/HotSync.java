@@ -0,0 +1,250 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.ParallelGzipOutputStream;
+
+/**
+ * Updates a running application in place, for development and test environments which are redeployed
+ * often. The WAR and EAR files are exploded locally and compared by MD5 checksum with the exploded
+ * deployment in the repo directory of the gear. Only the changed files are uploaded, in a single tar
+ * stream. Files which no longer exist are removed. Finally the container is told to redeploy the
+ * application (the .dodeploy marker on JBoss/WildFly, touching web.xml on Tomcat) without a restart.
+ *
+ * The next regular deployment replaces whatever hot sync has put on the gear.
+ */
+class HotSync {
+	private static final String REPO_DIR = "\"$OPENSHIFT_REPO_DIR\"";
+
+	private Logger log = Logger.NOOP;
+
+	private final SSHClient sshClient;
+
+	private final boolean tomcat;
+
+	/**
+	 * @param cartridges of the application. Applications with the jbossews cartridge run on Tomcat,
+	 * 		all others on JBoss/WildFly.
+	 */
+	public HotSync(SSHClient sshClient, String cartridges) {
+		this.sshClient = sshClient;
+		this.tomcat = cartridges.contains("jbossews");
+	}
+
+	public void setLogger(Logger log) {
+		this.log = log;
+	}
+
+	/**
+	 * @param localDeployments WAR and EAR files on the master node
+	 * @param workDir where the deployments are exploded
+	 */
+	public void sync(List<String> localDeployments, File workDir) throws IOException {
+		String deployDir = tomcat ? "webapps" : "deployments";
+
+		for (String deployment : localDeployments) {
+			String name;
+			if (localDeployments.size() == 1) {
+				name = tomcat ? "ROOT" : "ROOT." + FilenameUtils.getExtension(deployment);
+			} else {
+				name = tomcat ? FilenameUtils.getBaseName(deployment) : FilenameUtils.getName(deployment);
+			}
+
+			File exploded = new File(workDir, name);
+			if (exploded.exists()) {
+				FileUtils.deleteDirectory(exploded);
+			}
+			GitClient.explode(new File(deployment), exploded);
+
+			sync(exploded, deployDir + "/" + name);
+		}
+	}
+
+	private void sync(File localDir, String remoteDir) throws IOException {
+		String remotePath = remotePath(remoteDir, "");
+
+		Map<String, String> local = checksums(localDir);
+		Map<String, String> remote = remoteChecksums(remoteDir);
+
+		final List<String> changed = new ArrayList<String>();
+		long changedBytes = 0;
+		for (Map.Entry<String, String> e : local.entrySet()) {
+			if (!e.getValue().equals(remote.get(e.getKey()))) {
+				changed.add(e.getKey());
+				changedBytes += new File(localDir, e.getKey()).length();
+			}
+		}
+
+		List<String> removed = new ArrayList<String>();
+		for (String path : remote.keySet()) {
+			if (!local.containsKey(path)) {
+				removed.add(path);
+			}
+		}
+
+		log.info("Hot sync of " + remoteDir + ": " + changed.size() + " changed (" + FileUtils.byteCountToDisplaySize(changedBytes)
+				+ "), " + removed.size() + " removed, " + (local.size() - changed.size()) + " unchanged");
+		Metrics.add("openshift_hot_sync_bytes_total", changedBytes);
+		Metrics.add("openshift_hot_sync_files_total", changed.size());
+
+		if (!removed.isEmpty()) {
+			remove(remoteDir, removed);
+		}
+
+		StringBuilder command = new StringBuilder();
+		command.append("set -e; ");
+		command.append("if [ -f ").append(remotePath).append(" ]; then rm -f ").append(remotePath).append("; fi; "); // archive deployed before
+		command.append("mkdir -p ").append(remotePath).append("; cd ").append(remotePath).append("; ");
+		if (!changed.isEmpty()) {
+			command.append("tar xzf -; ");
+		}
+		command.append(reloadCommand(remoteDir));
+
+		final File dir = localDir;
+		SSHClient.Payload payload = changed.isEmpty() ? null : new SSHClient.Payload() {
+			public String getDescription() {
+				return changed.size() + " changed files";
+			}
+
+			public void writeTo(OutputStream out) throws IOException {
+				writeTar(dir, changed, out);
+			}
+		};
+
+		int status = sshClient.exec(command.toString(), payload, log.getOutputStream());
+		if (status != 0) {
+			throw new IOException("Hot sync of " + remoteDir + " failed with exit status " + status);
+		}
+	}
+
+	/**
+	 * The paths are sent to xargs on the standard input, since the length of a command line is limited.
+	 */
+	private void remove(String remoteDir, final List<String> paths) throws IOException {
+		SSHClient.Payload payload = new SSHClient.Payload() {
+			public String getDescription() {
+				return paths.size() + " removed files";
+			}
+
+			public void writeTo(OutputStream out) throws IOException {
+				for (String path : paths) {
+					out.write(path.getBytes("UTF-8"));
+					out.write(0);
+				}
+			}
+		};
+
+		int status = sshClient.exec("cd " + remotePath(remoteDir, "") + " && xargs -0 rm -f --", payload, log.getOutputStream());
+		if (status != 0) {
+			throw new IOException("Failed to remove the deleted files from " + remoteDir + ", exit status " + status);
+		}
+	}
+
+	/**
+	 * Redeploy without a restart
+	 */
+	private String reloadCommand(String remoteDir) {
+		if (tomcat) {
+			return "if [ -f WEB-INF/web.xml ]; then touch WEB-INF/web.xml; else touch .; fi";
+		} else {
+			return "rm -f " + remotePath(remoteDir, ".deployed") + " " + remotePath(remoteDir, ".failed")
+					+ "; touch " + remotePath(remoteDir, ".dodeploy");
+		}
+	}
+
+	private Map<String, String> remoteChecksums(String remoteDir) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		String remotePath = remotePath(remoteDir, "");
+		int status = sshClient.exec("if [ -d " + remotePath + " ]; then cd " + remotePath + " && find . -type f -exec md5sum {} +; fi",
+				null, out);
+		if (status != 0) {
+			throw new IOException("Failed to list the deployed files in " + remoteDir + ", exit status " + status);
+		}
+
+		Map<String, String> checksums = new HashMap<String, String>();
+		for (String line : out.toString("UTF-8").split("\n")) {
+			// <md5>  ./<path>
+			if (line.length() > 36 && line.startsWith("./", 34)) {
+				checksums.put(line.substring(36), line.substring(0, 32));
+			}
+		}
+		return checksums;
+	}
+
+	/**
+	 * @return the path in the repo directory of the gear as a shell word. The repo directory is
+	 * 		expanded by the shell, the rest is quoted, since the names come from the deployments.
+	 */
+	static String remotePath(String remoteDir, String suffix) {
+		return REPO_DIR + "/'" + (remoteDir + suffix).replace("'", "'\\''") + "'";
+	}
+
+	static Map<String, String> checksums(File dir) throws IOException {
+		Map<String, String> checksums = new TreeMap<String, String>();
+		checksums(dir, "", checksums);
+		return checksums;
+	}
+
+	private static void checksums(File dir, String prefix, Map<String, String> checksums) throws IOException {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+
+		for (File child : children) {
+			if (child.isDirectory()) {
+				checksums(child, prefix + child.getName() + "/", checksums);
+			} else {
+				InputStream in = new FileInputStream(child);
+				try {
+					checksums.put(prefix + child.getName(), Util.getDigestOf(in));
+				} finally {
+					in.close();
+				}
+			}
+		}
+	}
+
+	private static void writeTar(File dir, List<String> paths, OutputStream out) throws IOException {
+		TarOutputStream tar = new TarOutputStream(new ParallelGzipOutputStream(out));
+		tar.setLongFileMode(TarOutputStream.LONGFILE_GNU);
+		try {
+			for (String path : paths) {
+				File file = new File(dir, path);
+				TarEntry entry = new TarEntry(path);
+				entry.setSize(file.length());
+				entry.setModTime(file.lastModified());
+				tar.putNextEntry(entry);
+
+				InputStream in = new FileInputStream(file);
+				try {
+					IOUtils.copy(in, tar);
+				} finally {
+					in.close();
+				}
+				tar.closeEntry();
+			}
+		} finally {
+			tar.close();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.XmlFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+/**
+ * When applications were last deployed by the plugin, stored in
+ * <code>$JENKINS_HOME/openshift-last-deployments.xml</code>. Used by the {@link ApplicationReaper}.
+ */
+public final class LastDeployments {
+	private static final Logger LOG = Logger.getLogger(LastDeployments.class.getName());
+
+	private static LastDeployments instance;
+
+	private final XmlFile file;
+
+	private HashMap<String, Long> timestamps = new HashMap<String, Long>();
+
+	LastDeployments(File file) {
+		this.file = new XmlFile(Jenkins.XSTREAM2, file);
+		load();
+	}
+
+	public static synchronized LastDeployments get() {
+		if (instance == null) {
+			instance = new LastDeployments(new File(Jenkins.getInstance().getRootDir(), "openshift-last-deployments.xml"));
+		}
+		return instance;
+	}
+
+	public synchronized void record(String serverName, String domain, String appName) {
+		timestamps.put(key(serverName, domain, appName), System.currentTimeMillis());
+		save();
+	}
+
+	/**
+	 * @return the time of the last deployment. Applications which weren't deployed by the plugin are
+	 * 		recorded now, so that they are considered deployed when they were first seen.
+	 */
+	public synchronized long getOrRecord(String serverName, String domain, String appName) {
+		String key = key(serverName, domain, appName);
+		Long timestamp = timestamps.get(key);
+		if (timestamp == null) {
+			timestamp = System.currentTimeMillis();
+			timestamps.put(key, timestamp);
+			save();
+		}
+		return timestamp;
+	}
+
+	public synchronized void remove(String serverName, String domain, String appName) {
+		if (timestamps.remove(key(serverName, domain, appName)) != null) {
+			save();
+		}
+	}
+
+	private static String key(String serverName, String domain, String appName) {
+		return serverName + "/" + domain + "/" + appName;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (file.exists()) {
+			try {
+				timestamps = (HashMap<String, Long>) file.read();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Failed to load the last deployments from " + file, e);
+			}
+		}
+	}
+
+	private void save() {
+		try {
+			file.write(timestamps);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to save the last deployments to " + file, e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.RootAction;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.MetricsMBean;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Publishes the {@link Metrics} of the plugin in the Prometheus text format at
+ * {@code /openshift-metrics/} and as the JMX MBean {@link MetricsMBean#NAME}. Like any page of Jenkins,
+ * the endpoint requires the overall read permission.
+ */
+@Extension
+public class MetricsAction implements RootAction {
+	private static final Logger LOG = Logger.getLogger(MetricsAction.class.getName());
+
+	public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		rsp.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+		rsp.setHeader("Cache-Control", "no-cache");
+		PrintWriter out = rsp.getWriter();
+		Metrics.writeText(out);
+		out.flush();
+	}
+
+	@Initializer(after = InitMilestone.PLUGINS_STARTED)
+	public static void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			// left over when the plugin is reloaded
+			if (server.isRegistered(MetricsMBean.NAME)) {
+				server.unregisterMBean(MetricsMBean.NAME);
+			}
+			server.registerMBean(new MetricsMBean(), MetricsMBean.NAME);
+		} catch (JMException e) {
+			LOG.log(Level.WARNING, "Failed to register " + MetricsMBean.NAME, e);
+		}
+	}
+
+	public String getIconFileName() {
+		return null; // not listed, for scrapers only
+	}
+
+	public String getDisplayName() {
+		return "OpenShift Metrics";
+	}
+
+	public String getUrlName() {
+		return "openshift-metrics";
+	}
+}
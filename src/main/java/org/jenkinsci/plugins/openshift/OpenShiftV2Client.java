@@ -4,155 +4,704 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import javax.net.ssl.SSLSession;
 
+import net.sf.json.JSONObject;
+
 import org.apache.commons.lang3.RandomStringUtils;
 
 import com.openshift.client.ApplicationScale;
 import com.openshift.client.IApplication;
 import com.openshift.client.IDomain;
+import com.openshift.client.IGearGroup;
 import com.openshift.client.IGearProfile;
 import com.openshift.client.IHttpClient.ISSLCertificateCallback;
 import com.openshift.client.IOpenShiftConnection;
 import com.openshift.client.IOpenShiftSSHKey;
-import com.openshift.client.IUser;
 import com.openshift.client.OpenShiftConnectionFactory;
 import com.openshift.client.SSHPublicKey;
 import com.openshift.client.cartridge.ICartridge;
 import com.openshift.client.cartridge.IEmbeddableCartridge;
 import com.openshift.client.cartridge.IStandaloneCartridge;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Retry;
 
 /**
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
  */
 public class OpenShiftV2Client {
 	public static enum DeploymentType {GIT, BINARY}
-	
-	private String broker;
+
+	private static final long LOG_THROTTLE_WAIT_THRESHOLD = 100; // ms
+
+	private Logger log = Logger.NOOP;
+
+	private BrokerEndpoints endpoints;
+	private volatile String endpoint;
 	private String username;
 	private String password;
-	private IOpenShiftConnection conn;
-	
-	
+	private String serverName;
+	private int connectTimeout = BrokerRequest.DEFAULT_TIMEOUT;
+	private int readTimeout = BrokerRequest.DEFAULT_TIMEOUT;
+	private BrokerThrottle throttle;
+	private CircuitBreaker breaker;
+	private Retry retry = Retry.DEFAULT;
+	private final AtomicLong throttleWaitMillis = new AtomicLong();
+	private final AtomicInteger retries = new AtomicInteger();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicLong requestMillis = new AtomicLong();
+	private final Set<String> listedDomains = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private volatile IOpenShiftConnection conn;
+
+
 	public OpenShiftV2Client(String broker, String username, String password) {
-		this.broker = broker;
+		this(new BrokerEndpoints(broker, BrokerEndpoints.parse(broker)), username, password, broker, BrokerThrottle.UNLIMITED);
+	}
+
+	/**
+	 * Create a client which shares the broker throttle, circuit breaker and broker node health of the
+	 * server with all other clients of the same server.
+	 */
+	public OpenShiftV2Client(Server server) {
+		this(BrokerEndpoints.forServer(server), server.getUsername(), server.getPassword(), server.getName(), BrokerThrottle.forServer(server));
+		this.connectTimeout = BrokerRequest.timeout(server.getBrokerConnectTimeout());
+		this.readTimeout = BrokerRequest.timeout(server.getBrokerReadTimeout());
+	}
+
+	private OpenShiftV2Client(BrokerEndpoints endpoints, String username, String password, String serverName, BrokerThrottle throttle) {
+		this.endpoints = endpoints;
 		this.username = username;
 		this.password = password;
-		
-		this.conn = createConnection();
+		this.serverName = serverName;
+		this.throttle = throttle;
+		this.breaker = CircuitBreaker.forServer(serverName);
+
+		this.conn = call("connect", true, new BrokerCall<IOpenShiftConnection>() {
+			public IOpenShiftConnection call() {
+				return createConnection();
+			}
+		});
+	}
+
+	public void setLogger(Logger log) {
+		this.log = log;
 	}
-	
+
+	/**
+	 * @return the address of the broker node this client is connected to
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return the total time this client spent waiting for the broker throttle
+	 */
+	public long getThrottleWaitMillis() {
+		return throttleWaitMillis.get();
+	}
+
+	/**
+	 * @return the number of broker requests this client retried
+	 */
+	public int getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * @return the number of broker calls this client made, including retries
+	 */
+	public int getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return the total time this client spent in broker calls, without throttle waits
+	 */
+	public long getRequestMillis() {
+		return requestMillis.get();
+	}
+
+	/**
+	 * Connect to the fastest healthy broker node, trying the others in turn if it doesn't respond.
+	 */
 	private IOpenShiftConnection createConnection() {
-		return new OpenShiftConnectionFactory().getConnection("jenkins-ci", username, password, broker, new TrustingISSLCertificateCallback());
+		RuntimeException failure = null;
+		for (BrokerEndpoints.Endpoint candidate : endpoints.rank()) {
+			String address = candidate.getAddress();
+			long start = System.currentTimeMillis();
+			try {
+				IOpenShiftConnection connection = new OpenShiftConnectionFactory().getConnection("jenkins-ci", username, password, address, new TrustingISSLCertificateCallback());
+				endpoints.onSuccess(address, System.currentTimeMillis() - start);
+				if (endpoint != null && !endpoint.equals(address)) {
+					log.info("Failed over to the broker at '" + address + "'");
+					Metrics.increment("openshift_broker_failovers_total", "server", serverName);
+				}
+				endpoint = address;
+				return connection;
+			} catch (RuntimeException e) {
+				if (!Retry.isTransient(e)) {
+					throw e;
+				}
+				endpoints.onFailure(address);
+				log.info("Broker at '" + address + "' is not responding: " + e.getMessage());
+				failure = e;
+			}
+		}
+
+		if (failure == null) {
+			throw new OpenShiftException("No broker address configured for '" + serverName + "'");
+		}
+		throw failure;
+	}
+
+	/**
+	 * Reconnect to another broker node after a transient failure. Applications and domains looked up
+	 * before keep the links of the node they were loaded from, so calls which are retried use them
+	 * through a {@link Resource}.
+	 */
+	private void failover() {
+		if (conn == null || endpoints.getEndpoints().size() < 2) {
+			return;
+		}
+
+		endpoints.onFailure(endpoint);
+		BrokerThrottle.Permit permit = acquire();
+		try {
+			conn = createConnection();
+		} catch (RuntimeException e) {
+			// every node failed, the next attempt tries again
+		} finally {
+			permit.release();
+		}
+	}
+
+	/**
+	 * A request, or a few related requests, to the broker.
+	 */
+	private interface BrokerCall<T> {
+		T call();
+	}
+
+	/**
+	 * A domain or application captured by a retried call. After a failover it is loaded again
+	 * through the new connection, since its links point to the node it was loaded from.
+	 */
+	private abstract class Resource<T> {
+		private T resource;
+
+		private IOpenShiftConnection loadedFrom;
+
+		Resource(T resource) {
+			this.resource = resource;
+			this.loadedFrom = conn;
+		}
+
+		synchronized T get() {
+			IOpenShiftConnection current = conn;
+			if (loadedFrom != current) {
+				resource = reload(current);
+				loadedFrom = current;
+			}
+			return resource;
+		}
+
+		abstract T reload(IOpenShiftConnection connection);
+	}
+
+	private Resource<IDomain> domainResource(final String domainName) {
+		return new Resource<IDomain>(getDomain(domainName)) {
+			IDomain reload(IOpenShiftConnection connection) {
+				IDomain domain = connection.getUser().getDomain(domainName);
+				if (domain == null) {
+					throw new OpenShiftException("Domain '" + domainName + "' doesn't exist.");
+				}
+				return domain;
+			}
+		};
 	}
-	
-	
+
+	private Resource<IApplication> appResource(final IApplication app) {
+		return new Resource<IApplication>(app) {
+			IApplication reload(IOpenShiftConnection connection) {
+				IDomain domain = connection.getUser().getDomain(app.getDomain().getId());
+				IApplication reloaded = domain == null ? null : domain.getApplicationByName(app.getName());
+				if (reloaded == null) {
+					throw new OpenShiftException("Application '" + app.getName() + "' doesn't exist anymore.");
+				}
+				return reloaded;
+			}
+		};
+	}
+
+	/**
+	 * Send the call to the broker through the circuit breaker and the throttle of the server. Idempotent
+	 * calls are retried on transient failures. Non-transient failures such as a missing resource mean
+	 * the broker is healthy and don't count towards opening the breaker.
+	 */
+	private <T> T call(String operation, boolean idempotent, BrokerCall<T> call) {
+		for (int attempt = 1; ; attempt++) {
+			boolean trial = breaker.beforeRequest(log);
+
+			RuntimeException failure;
+			try {
+				BrokerThrottle.Permit permit = acquire();
+				long start = System.currentTimeMillis();
+				try {
+					T result = call.call();
+					breaker.onSuccess(log);
+					return result;
+				} catch (RuntimeException e) {
+					if (!Retry.isTransient(e)) {
+						breaker.onSuccess(log);
+						Metrics.increment("openshift_broker_errors_total", "server", serverName, "operation", operation);
+						throw e;
+					}
+
+					breaker.onFailure(log);
+					Metrics.increment("openshift_broker_failures_total", "server", serverName, "operation", operation);
+					if (!idempotent || !retry.shouldRetry(attempt, e)) {
+						throw e;
+					}
+					failure = e;
+				} finally {
+					permit.release();
+					record(operation, System.currentTimeMillis() - start);
+				}
+			} finally {
+				breaker.afterRequest(trial);
+			}
+
+			failover();
+			retries.incrementAndGet();
+			Metrics.increment("openshift_broker_retries_total", "server", serverName, "operation", operation);
+			try {
+				retry.backoff(attempt, "Broker request '" + operation + "'", failure, log);
+			} catch (InterruptedIOException e) {
+				throw new OpenShiftException(e.getMessage(), failure);
+			}
+		}
+	}
+
+	private void record(String operation, long millis) {
+		requests.incrementAndGet();
+		requestMillis.addAndGet(millis);
+		Metrics.increment("openshift_broker_requests_total", "server", serverName, "operation", operation);
+		Metrics.add("openshift_broker_request_millis_total", millis, "server", serverName, "operation", operation);
+		Metrics.observe("openshift_broker_request_duration_millis", millis, "server", serverName, "operation", operation);
+	}
+
+	/**
+	 * @return a request to the broker node this client is connected to, with the timeouts of the server
+	 */
+	private BrokerRequest brokerRequest() {
+		BrokerRequest request = new BrokerRequest(endpoint, username, password);
+		request.setTimeouts(connectTimeout, readTimeout);
+		return request;
+	}
+
+	/**
+	 * Only the requests sent by {@link BrokerRequest} are measured, the client library doesn't expose
+	 * the size of its responses.
+	 */
+	private void recordBytes(String operation, BrokerRequest.Response response) {
+		Metrics.add("openshift_broker_response_bytes_total", response.getBytes(), "server", serverName, "operation", operation);
+	}
+
+	private BrokerThrottle.Permit acquire() {
+		try {
+			BrokerThrottle.Permit permit = throttle.acquire();
+			throttleWaitMillis.addAndGet(permit.getWaitMillis());
+
+			if (permit.getWaitMillis() >= LOG_THROTTLE_WAIT_THRESHOLD) {
+				log.info("Waited " + permit.getWaitMillis() + " ms for the broker request limit of '" + serverName + "'");
+			}
+
+			return permit;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OpenShiftException("Interrupted while waiting for the broker request limit of '" + serverName + "'", e);
+		}
+	}
+
+
 	public ValidationResult validate() {
 		try {
-			if (conn.getDomains().size() == 0) {
-				return new ValidationResult(false, "User doesn't have any domains. Create a domain for the user in OpenShift");	
+			boolean hasDomains = call("getDomains", true, new BrokerCall<Boolean>() {
+				public Boolean call() {
+					return conn.getDomains().size() > 0;
+				}
+			});
+
+			if (!hasDomains) {
+				return new ValidationResult(false, "User doesn't have any domains. Create a domain for the user in OpenShift");
 			}
 		} catch (Exception e) {
 			return new ValidationResult(false, e.getMessage());
 		}
-		
+
 		return new ValidationResult(true, "ok");
 	}
-	
+
 	public IApplication getOrCreateApp(String appName, String domainName,
 			List<String> cartridges, String gearProfile,
 			Map<String, String> environmentVariables, Boolean autoScale) throws OpenShiftException {
-		IUser user = conn.getUser();
-		IDomain domain = user.getDomain(domainName);
+		return getOrCreateApp(appName, domainName, cartridges, gearProfile, environmentVariables, autoScale, true);
+	}
+
+	/**
+	 * @param waitForAccessible whether to block until a newly created application is accessible. Callers
+	 * 		that pass false are responsible for polling the application before deploying to it.
+	 */
+	public IApplication getOrCreateApp(final String appName, final String domainName,
+			final List<String> cartridges, final String gearProfile,
+			final Map<String, String> environmentVariables, Boolean autoScale, boolean waitForAccessible) throws OpenShiftException {
+		IApplication app = getApp(appName, domainName);
 
-		if (domain == null) { // check if domain exists
-			throw new OpenShiftException("Domain '" + domainName + "' doesn't exist.");
-		}
-		
-		IApplication app = domain.getApplicationByName(appName);
-		
 		// create app if doesn't exist
 		if (app == null) {
-			ApplicationScale appScale = autoScale.booleanValue() ? ApplicationScale.SCALE : ApplicationScale.NO_SCALE;
-			
-			if (isEmpty(gearProfile)) {
-				app = domain.createApplication(appName, getStandaloneCartridge(cartridges), appScale);
-			} else {
-				app = domain.createApplication(appName, getStandaloneCartridge(cartridges), appScale, getGearProfile(gearProfile, domainName));
-			}			
-			
-			app.addEmbeddableCartridges(getEmbeddedCartridge(cartridges));
-			
-			app.waitForAccessible(5*60*1000); // 5 min
-		}
-		
+			final IDomain domain = getDomain(domainName);
+			final ApplicationScale appScale = autoScale.booleanValue() ? ApplicationScale.SCALE : ApplicationScale.NO_SCALE;
+
+			app = call("createApplication", false, new BrokerCall<IApplication>() {
+				public IApplication call() {
+					IApplication created;
+					if (isEmpty(gearProfile)) {
+						created = domain.createApplication(appName, getStandaloneCartridge(cartridges), appScale);
+					} else {
+						created = domain.createApplication(appName, getStandaloneCartridge(cartridges), appScale, getGearProfile(gearProfile, domainName));
+					}
+
+					created.addEmbeddableCartridges(getEmbeddedCartridge(cartridges));
+					return created;
+				}
+			});
+
+			// the gear is polled directly, no need to hold the broker
+			if (waitForAccessible) {
+				app.waitForAccessible(5*60*1000); // 5 min
+			}
+		}
+
 		if (environmentVariables != null) {
-			app.addEnvironmentVariables(environmentVariables);
+			final Resource<IApplication> target = appResource(app);
+			call("addEnvironmentVariables", true, new BrokerCall<Void>() {
+				public Void call() {
+					target.get().addEnvironmentVariables(environmentVariables);
+					return null;
+				}
+			});
 		}
-		
+
 		return app;
 	}
-	
-	public IApplication deleteApp(String appName, String domainName) throws OpenShiftException {
-		IUser user = conn.getUser();
-		IDomain domain = user.getDomain(domainName);
-		
-		if (domain == null) { // check if domain exists
-			throw new OpenShiftException("Domain '" + domainName + "' doesn't exist.");
+
+	/**
+	 * @return the application or null if it doesn't exist. The application is built from the single
+	 * 		application resource; the applications of the domain are only listed if the client library
+	 * 		is needed for more than the basic properties, see {@link SingleApplication}.
+	 * @throws OpenShiftException if the domain doesn't exist
+	 */
+	public IApplication getApp(final String appName, final String domainName) throws OpenShiftException {
+		BrokerRequest.Response response = lookupApp(appName, domainName);
+		if (response == null) {
+			return listApp(appName, domainName);
 		}
-		
-		IApplication app = domain.getApplicationByName(appName);
+
+		if (response.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+			getDomain(domainName); // fails if the domain is missing
+			return null;
+		}
+
+		try {
+			return SingleApplication.create(response.getData(), new SingleApplication.Loader() {
+				public IApplication load() {
+					IApplication app = listApp(appName, domainName);
+					if (app == null) {
+						throw new OpenShiftException("Application '" + appName + "' doesn't exist anymore in domain '" + domainName + "'");
+					}
+					return app;
+				}
+			});
+		} catch (IOException e) {
+			log.info("Lookup of application '" + appName + "' failed (" + e.getMessage() + "). Listing the applications of '" + domainName + "'.");
+			return listApp(appName, domainName);
+		}
+	}
+
+	/**
+	 * @return whether the application exists, from a single request for the application unless this
+	 * 		client already loaded the applications of the domain
+	 */
+	public boolean appExists(String appName, String domainName) throws OpenShiftException {
+		BrokerRequest.Response response = lookupApp(appName, domainName);
+		if (response != null) {
+			return response.getStatus() == HttpURLConnection.HTTP_OK;
+		}
+
+		return listApp(appName, domainName) != null;
+	}
+
+	/**
+	 * The client library only materializes applications from a listing of all applications of the
+	 * domain, which is slow and large for big domains. Ask the broker for the single application
+	 * instead.
+	 *
+	 * @return the response with HTTP 200 or 404, or null if unknown and the listing has to be used
+	 */
+	private BrokerRequest.Response lookupApp(final String appName, final String domainName) {
+		if (listedDomains.contains(domainName)) {
+			return null; // the library answers from the listing it holds
+		}
+
+		return call("lookupApplication", true, new BrokerCall<BrokerRequest.Response>() {
+			public BrokerRequest.Response call() {
+				try {
+					BrokerRequest.Response response = brokerRequest().get(BrokerRequest.applicationPath(domainName, appName));
+					recordBytes("lookupApplication", response);
+					int status = response.getStatus();
+					if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_FOUND) {
+						return response;
+					}
+					log.info("Lookup of application '" + appName + "' returned HTTP " + status + ". Listing the applications of '" + domainName + "'.");
+				} catch (IOException e) {
+					log.info("Lookup of application '" + appName + "' failed (" + e.getMessage() + "). Listing the applications of '" + domainName + "'.");
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return the application from the listing of the domain or null if it doesn't exist
+	 * @throws OpenShiftException if the domain doesn't exist
+	 */
+	private IApplication listApp(final String appName, String domainName) throws OpenShiftException {
+		final Resource<IDomain> domain = domainResource(domainName);
+
+		return listApps(domainName, new BrokerCall<IApplication>() {
+			public IApplication call() {
+				return domain.get().getApplicationByName(appName);
+			}
+		});
+	}
+
+	/**
+	 * Run a call which needs the applications of the domain. The domain caches them, so later lookups
+	 * through this client are answered from the listing.
+	 */
+	private <T> T listApps(String domainName, BrokerCall<T> call) {
+		T result = call("getApplications", true, call);
+		listedDomains.add(domainName);
+		return result;
+	}
+
+	public IApplication deleteApp(String appName, String domainName) throws OpenShiftException {
+		IApplication app = getApp(appName, domainName);
+
 		if (app != null) {
-			app.destroy();
+			destroyApp(app);
 		}
-		
+
 		return app;
 	}
 
+	/**
+	 * Destroy an application which was looked up before, without resolving the user and domain again.
+	 */
+	public void destroyApp(final IApplication app) throws OpenShiftException {
+		call("destroyApplication", false, new BrokerCall<Void>() {
+			public Void call() {
+				app.destroy();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return the applications of the domain with a name matching the pattern, from a single listing
+	 */
+	public List<IApplication> findApps(String domainName, final Pattern pattern) throws OpenShiftException {
+		final Resource<IDomain> domain = domainResource(domainName);
+
+		return listApps(domainName, new BrokerCall<List<IApplication>>() {
+			public List<IApplication> call() {
+				List<IApplication> apps = new ArrayList<IApplication>();
+				for (IApplication app : domain.get().getApplications()) {
+					if (pattern.matcher(app.getName()).matches()) {
+						apps.add(app);
+					}
+				}
+
+				return apps;
+			}
+		});
+	}
+
+	/**
+	 * @return the scale of the web cartridge of a scaled application, from the cartridge resource
+	 */
+	public Scale getScale(final IApplication app, final String domainName) throws OpenShiftException {
+		return call("getCartridge", true, new BrokerCall<Scale>() {
+			public Scale call() {
+				try {
+					BrokerRequest.Response response = brokerRequest().get(cartridgePath(app, domainName));
+					recordBytes("getCartridge", response);
+					if (response.getStatus() != HttpURLConnection.HTTP_OK) {
+						throw new OpenShiftException("Failed to get the scale of '" + app.getName() + "': HTTP " + response.getStatus());
+					}
+
+					JSONObject data = response.getData();
+					return new Scale(data.getInt("scales_from"), data.getInt("scales_to"), data.getInt("current_scale"));
+				} catch (IOException e) {
+					throw new OpenShiftException("Failed to get the scale of '" + app.getName() + "': " + e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Change the minimum and maximum number of gears of the web cartridge. The broker adds gears
+	 * to reach a higher minimum before it responds.
+	 */
+	public void setScale(final IApplication app, final String domainName, final Scale scale) throws OpenShiftException {
+		final Map<String, String> parameters = new LinkedHashMap<String, String>();
+		parameters.put("scales_from", String.valueOf(scale.getMin()));
+		parameters.put("scales_to", String.valueOf(scale.getMax()));
+
+		call("updateCartridge", true, new BrokerCall<Void>() {
+			public Void call() {
+				try {
+					BrokerRequest.Response response = brokerRequest().put(cartridgePath(app, domainName), parameters);
+					recordBytes("updateCartridge", response);
+					if (response.getStatus() != HttpURLConnection.HTTP_OK) {
+						throw new OpenShiftException("Failed to scale '" + app.getName() + "' to " + scale + ": HTTP " + response.getStatus());
+					}
+					return null;
+				} catch (IOException e) {
+					throw new OpenShiftException("Failed to scale '" + app.getName() + "' to " + scale + ": " + e.getMessage(), e);
+				}
+			}
+		});
+
+		refresh(app);
+	}
+
+	private static String cartridgePath(IApplication app, String domainName) throws IOException {
+		return BrokerRequest.cartridgePath(domainName, app.getName(), app.getCartridge().getName());
+	}
+
+	/**
+	 * Reload the gear groups of the application after scaling it.
+	 */
+	private void refresh(IApplication app) {
+		final Resource<IApplication> target = appResource(app);
+		call("refreshApplication", true, new BrokerCall<Void>() {
+			public Void call() {
+				target.get().refresh();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return the number of gears of the application over all its gear groups
+	 */
+	public int countGears(IApplication app) throws OpenShiftException {
+		final Resource<IApplication> target = appResource(app);
+		return call("getGearGroups", true, new BrokerCall<Integer>() {
+			public Integer call() {
+				int gears = 0;
+				for (IGearGroup group : target.get().getGearGroups()) {
+					gears += group.getGears().size();
+				}
+
+				return gears;
+			}
+		});
+	}
+
 	public List<String> getApps(String domainName) {
-		IUser user = conn.getUser();
-		IDomain domain = user.getDomain(domainName);
-		
+		final Resource<IDomain> domain = domainResource(domainName);
+
+		return listApps(domainName, new BrokerCall<List<String>>() {
+			public List<String> call() {
+				List<String> apps = new ArrayList<String>();
+				for (IApplication app : domain.get().getApplications()) {
+					apps.add(app.getName());
+				}
+
+				return apps;
+			}
+		});
+	}
+
+	/**
+	 * @throws OpenShiftException if the domain doesn't exist
+	 */
+	private IDomain getDomain(final String domainName) throws OpenShiftException {
+		IDomain domain = call("getDomain", true, new BrokerCall<IDomain>() {
+			public IDomain call() {
+				return conn.getUser().getDomain(domainName);
+			}
+		});
+
 		if (domain == null) { // check if domain exists
 			throw new OpenShiftException("Domain '" + domainName + "' doesn't exist.");
 		}
-		
-		List<String> apps = new ArrayList<String>();
-		for (IApplication app : domain.getApplications()) {
-			apps.add(app.getName());
-		}
-		
-		return apps;
+
+		return domain;
 	}
-	
+
 	public boolean sshKeyExists(File publicKey) throws IOException {
-		SSHPublicKey newKey = new SSHPublicKey(publicKey);
-		IUser user = conn.getUser();
-		for (IOpenShiftSSHKey key : user.getSSHKeys()) {
-			if (newKey.getPublicKey().equals(key.getPublicKey())) {
-				return true;
-			}
-		}
+		final SSHPublicKey newKey = new SSHPublicKey(publicKey);
+
+		return call("getSSHKeys", true, new BrokerCall<Boolean>() {
+			public Boolean call() {
+				for (IOpenShiftSSHKey key : conn.getUser().getSSHKeys()) {
+					if (newKey.getPublicKey().equals(key.getPublicKey())) {
+						return true;
+					}
+				}
 
-		return false;
+				return false;
+			}
+		});
 	}
-	
+
 	public void uploadSSHKey(File publicKey) throws IOException {
-		SSHPublicKey newKey = new SSHPublicKey(publicKey);
+		final SSHPublicKey newKey = new SSHPublicKey(publicKey);
 		String address = null;
 		try {
 			address = InetAddress.getLocalHost().getHostName();
 		} catch (Exception e) {
 			// due to http://bugs.java.com/bugdatabase/view_bug.do?bug_id=7180557
-			address = RandomStringUtils.randomAlphabetic(16); 
+			address = RandomStringUtils.randomAlphabetic(16);
 		}
-		conn.getUser().addSSHKey("jenkins-ci-" + address, newKey);
+
+		final String keyName = "jenkins-ci-" + address;
+		call("addSSHKey", false, new BrokerCall<Void>() {
+			public Void call() {
+				conn.getUser().addSSHKey(keyName, newKey);
+				return null;
+			}
+		});
 	}
 
 	private IGearProfile getGearProfile(String gearProfile, String domainName) {
@@ -161,7 +710,7 @@ public class OpenShiftV2Client {
 				return profile;
 			}
 		}
-		
+
 		return null;
 	}
 
@@ -173,10 +722,10 @@ public class OpenShiftV2Client {
 				}
 			}
 		}
-		
+
 		return null;
 	}
-	
+
 	private List<IEmbeddableCartridge> getEmbeddedCartridge(List<String> cartridgeNames) {
 		List<IEmbeddableCartridge> embeddableCartridges = new LinkedList<IEmbeddableCartridge>();
 		for (String cartridgeName : cartridgeNames) {
@@ -186,10 +735,10 @@ public class OpenShiftV2Client {
 				}
 			}
 		}
-		
+
 		return embeddableCartridges;
 	}
-	
+
 	public static class TrustingISSLCertificateCallback implements ISSLCertificateCallback {
 		public boolean allowCertificate(
 				java.security.cert.X509Certificate[] certs) {
@@ -200,42 +749,86 @@ public class OpenShiftV2Client {
 			return true;
 		}
 	}
-	
+
 	public List<String> getCartridges() {
-		List<String> cartridges = new LinkedList<String>();
-		for (ICartridge cartridge : conn.getCartridges()) {
-			cartridges.add(cartridge.getName());
-		}
-		
-		return cartridges;
+		return call("getCartridges", true, new BrokerCall<List<String>>() {
+			public List<String> call() {
+				List<String> cartridges = new LinkedList<String>();
+				for (ICartridge cartridge : conn.getCartridges()) {
+					cartridges.add(cartridge.getName());
+				}
+
+				return cartridges;
+			}
+		});
 	}
 
-	public List<String> getGearProfiles(String domainName) {
-		List<String> gearProfiles = new LinkedList<String>();
-		IDomain domain = conn.getUser().getDomain(domainName);
-		
-		if (domain != null) {
-			for (IGearProfile gearProfile : domain.getAvailableGearProfiles()) {
-				gearProfiles.add(gearProfile.getName());
+	public List<String> getGearProfiles(final String domainName) {
+		return call("getGearProfiles", true, new BrokerCall<List<String>>() {
+			public List<String> call() {
+				List<String> gearProfiles = new LinkedList<String>();
+				IDomain domain = conn.getUser().getDomain(domainName);
+
+				if (domain != null) {
+					for (IGearProfile gearProfile : domain.getAvailableGearProfiles()) {
+						gearProfiles.add(gearProfile.getName());
+					}
+				}
+
+				return gearProfiles;
 			}
-		}
-		
-		return gearProfiles;
+		});
 	}
-	
+
 	public List<String> getDomains() {
-		List<String> domains = new LinkedList<String>();
-		for (IDomain domain : conn.getUser().getDomains()) {
-			domains.add(domain.getId());
+		return call("getDomains", true, new BrokerCall<List<String>>() {
+			public List<String> call() {
+				List<String> domains = new LinkedList<String>();
+				for (IDomain domain : conn.getUser().getDomains()) {
+					domains.add(domain.getId());
+				}
+
+				return domains;
+			}
+		});
+	}
+
+	/**
+	 * The gears of the web cartridge of a scaled application. A maximum of -1 means no limit.
+	 */
+	public static final class Scale {
+		private final int min;
+		private final int max;
+		private final int current;
+
+		public Scale(int min, int max, int current) {
+			this.min = min;
+			this.max = max;
+			this.current = current;
+		}
+
+		public int getMin() {
+			return min;
+		}
+
+		public int getMax() {
+			return max;
+		}
+
+		public int getCurrent() {
+			return current;
+		}
+
+		@Override
+		public String toString() {
+			return min + ".." + (max < 0 ? "unlimited" : String.valueOf(max)) + " gears";
 		}
-	
-		return domains;
 	}
 
 	static class ValidationResult {
 		private boolean valid;
 		private String message;
-		
+
 		public ValidationResult(boolean valid, String message) {
 			super();
 			this.valid = valid;
@@ -245,7 +838,7 @@ public class OpenShiftV2Client {
 		public boolean isValid() {
 			return valid;
 		}
-		
+
 		public String getMessage() {
 			return message;
 		}
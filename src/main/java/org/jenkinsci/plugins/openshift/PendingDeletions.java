@@ -0,0 +1,287 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.RootAction;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Utils;
+import org.kohsuke.stapler.StaplerProxy;
+
+import com.openshift.client.IApplication;
+
+/**
+ * Application deletions which run on the master after the build which requested them has finished.
+ * Pending and recently finished deletions are listed on a Jenkins-wide page for administrators.
+ *
+ * The deletions are stored in <code>$JENKINS_HOME/openshift-pending-deletions.xml</code>, so that
+ * deletions which didn't finish before a restart are run again after it.
+ */
+@Extension
+public class PendingDeletions implements RootAction, StaplerProxy {
+	private static final Logger LOG = Logger.getLogger(PendingDeletions.class.getName());
+
+	private static final int MAX_FINISHED = 100;
+
+	private static final int THREADS = 4;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+			new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift deletion"));
+
+	private final XmlFile file = new XmlFile(Jenkins.XSTREAM2, new File(Jenkins.getInstance().getRootDir(), "openshift-pending-deletions.xml"));
+
+	private final LinkedList<Deletion> deletions = new LinkedList<Deletion>();
+
+	public static PendingDeletions get() {
+		return Jenkins.getInstance().getExtensionList(RootAction.class).get(PendingDeletions.class);
+	}
+
+	/**
+	 * Queue the deletions again which were pending or running when Jenkins stopped. The servers are
+	 * configured by then; the broker is only contacted by the executor, so that an unreachable
+	 * broker doesn't hold up the startup.
+	 */
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void resume() {
+		get().load();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+
+		List<Deletion> loaded;
+		try {
+			loaded = (List<Deletion>) file.read();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to load the pending deletions from " + file, e);
+			return;
+		}
+
+		synchronized (deletions) {
+			deletions.addAll(loaded);
+		}
+
+		for (Deletion deletion : loaded) {
+			if (deletion.isFinished()) {
+				continue;
+			}
+
+			Server server = Utils.findServer(deletion.getServerName());
+			if (server == null) {
+				setState(deletion, State.FAILED, "OpenShift server '" + deletion.getServerName() + "' doesn't exist anymore");
+				continue;
+			}
+
+			LOG.info("Resuming the deletion of application '" + deletion.getAppName() + "' in domain '" + deletion.getDomain() + "'");
+			deletion.state = State.PENDING;
+			run(deletion, server, null, null);
+		}
+	}
+
+	private void save() {
+		synchronized (deletions) {
+			try {
+				file.write(new ArrayList<Deletion>(deletions));
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Failed to save the pending deletions to " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Destroy the application in the background. Once it is destroyed, its standby pool claim and
+	 * last deployment are forgotten.
+	 *
+	 * @param client the client which looked up the application. It must not be used by the caller afterwards.
+	 * @param requestedBy the build which requested the deletion
+	 */
+	public Deletion submit(OpenShiftV2Client client, String serverName, IApplication app, String domain, String requestedBy) {
+		Deletion deletion = new Deletion(serverName, app.getName(), domain, requestedBy);
+		synchronized (deletions) {
+			deletions.add(0, deletion);
+		}
+		save();
+		Metrics.increment("openshift_async_deletions_submitted_total");
+
+		run(deletion, null, client, app);
+		return deletion;
+	}
+
+	/**
+	 * @param server the server to log in to if no client is given
+	 * @param app the application if it was looked up already, otherwise it is looked up by name
+	 */
+	private void run(final Deletion deletion, final Server server, final OpenShiftV2Client loggedIn, final IApplication app) {
+		executor.submit(new Runnable() {
+			public void run() {
+				setState(deletion, State.RUNNING, null);
+				try {
+					OpenShiftV2Client client = loggedIn != null ? loggedIn : new OpenShiftV2Client(server);
+					if (app != null) {
+						client.destroyApp(app);
+					} else if (client.deleteApp(deletion.getAppName(), deletion.getDomain()) == null) {
+						LOG.info("Application '" + deletion.getAppName() + "' was deleted already");
+					}
+					DeleteApplication.forget(deletion.getServerName(), deletion.getDomain(), deletion.getAppName());
+					setState(deletion, State.DELETED, null);
+					Metrics.increment("openshift_async_deletions_total", "result", "deleted");
+				} catch (RuntimeException e) {
+					LOG.log(Level.WARNING, "Failed to delete application '" + deletion.getAppName() + "'", e);
+					setState(deletion, State.FAILED, e.getMessage());
+					Metrics.increment("openshift_async_deletions_total", "result", "failed");
+				}
+				prune();
+			}
+		});
+	}
+
+	private void setState(Deletion deletion, State state, String message) {
+		deletion.setState(state, message);
+		save();
+	}
+
+	/**
+	 * @return the deletions, most recent first
+	 */
+	public List<Deletion> getDeletions() {
+		synchronized (deletions) {
+			return Collections.unmodifiableList(new ArrayList<Deletion>(deletions));
+		}
+	}
+
+	public int getPendingCount() {
+		int count = 0;
+		for (Deletion deletion : getDeletions()) {
+			if (!deletion.isFinished()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void prune() {
+		boolean pruned = false;
+		synchronized (deletions) {
+			int finished = 0;
+			for (Iterator<Deletion> it = deletions.iterator(); it.hasNext();) {
+				if (it.next().isFinished() && ++finished > MAX_FINISHED) {
+					it.remove();
+					pruned = true;
+				}
+			}
+		}
+
+		if (pruned) {
+			save();
+		}
+	}
+
+	/**
+	 * The deletions of all jobs are listed, so the page is for administrators only.
+	 */
+	public Object getTarget() {
+		Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+		return this;
+	}
+
+	public String getIconFileName() {
+		if (getDeletions().isEmpty() || !Jenkins.getInstance().hasPermission(Jenkins.ADMINISTER)) {
+			return null;
+		}
+		return "edit-delete.png";
+	}
+
+	public String getDisplayName() {
+		return "OpenShift Deletions";
+	}
+
+	public String getUrlName() {
+		return "openshift-deletions";
+	}
+
+	public enum State {PENDING, RUNNING, DELETED, FAILED}
+
+	public static final class Deletion {
+		private final String serverName;
+		private final String appName;
+		private final String domain;
+		private final String requestedBy;
+		private final Date submitted = new Date();
+		private volatile State state = State.PENDING;
+		private volatile String message;
+		private volatile Date finished;
+
+		private Deletion(String serverName, String appName, String domain, String requestedBy) {
+			this.serverName = serverName;
+			this.appName = appName;
+			this.domain = domain;
+			this.requestedBy = requestedBy;
+		}
+
+		private void setState(State state, String message) {
+			this.state = state;
+			this.message = message;
+			if (isFinished()) {
+				finished = new Date();
+			}
+		}
+
+		public String getServerName() {
+			return serverName;
+		}
+
+		public String getAppName() {
+			return appName;
+		}
+
+		public String getDomain() {
+			return domain;
+		}
+
+		public String getRequestedBy() {
+			return requestedBy;
+		}
+
+		public Date getSubmitted() {
+			return submitted;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		public Date getFinished() {
+			return finished;
+		}
+
+		public boolean isFinished() {
+			return state == State.DELETED || state == State.FAILED;
+		}
+	}
+}
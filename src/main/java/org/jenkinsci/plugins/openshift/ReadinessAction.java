@@ -0,0 +1,44 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.model.Action;
+
+/**
+ * Time from the end of the deployment of a build until the application passed its readiness checks.
+ */
+public class ReadinessAction implements Action {
+	private final String appName;
+
+	private final long timeToReady;
+
+	public ReadinessAction(String appName, long timeToReady) {
+		this.appName = appName;
+		this.timeToReady = timeToReady;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	/**
+	 * @return time to ready in ms
+	 */
+	public long getTimeToReady() {
+		return timeToReady;
+	}
+
+	public String getTimeToReadySeconds() {
+		return String.format("%.1f", timeToReady / 1000.0);
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Time to ready";
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+}
@@ -0,0 +1,185 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Retry;
+
+/**
+ * Polls URLs of a freshly deployed application until they respond as expected, so that the build
+ * only finishes once the application has started. Each line of the configuration is a path below the
+ * application URL, optionally followed by the expected HTTP status (200 by default) and a text the
+ * response body must contain:
+ *
+ * <pre>
+ * /health 200 UP
+ * /index.html
+ * </pre>
+ */
+class ReadinessCheck {
+	public static final int DEFAULT_TIMEOUT = 300; // seconds
+
+	private static final int REQUEST_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+	private static final int MAX_BODY = 64 * 1024;
+
+	private static final long MIN_DELAY = 500;
+
+	private final Retry backoff = new Retry(Integer.MAX_VALUE, 1000, 15000);
+
+	private final List<Probe> probes;
+
+	private Logger log = Logger.NOOP;
+
+	public ReadinessCheck(String checks) {
+		this.probes = parse(checks);
+	}
+
+	public void setLogger(Logger log) {
+		this.log = log;
+	}
+
+	public boolean isEmpty() {
+		return probes.isEmpty();
+	}
+
+	/**
+	 * Wait until every probe has succeeded once.
+	 *
+	 * @return ms until the application was ready
+	 * @throws IOException if the application isn't ready within the timeout
+	 */
+	public long await(String applicationUrl, long timeoutMillis) throws IOException {
+		long start = System.currentTimeMillis();
+		String baseUrl = applicationUrl.replaceAll("/+$", "");
+
+		for (Probe probe : probes) {
+			String url = baseUrl + probe.path;
+			log.info("Waiting for " + url + " to return " + probe.describe());
+
+			for (int attempt = 1; ; attempt++) {
+				String failure = probe.check(url);
+				if (failure == null) {
+					break;
+				}
+
+				long elapsed = System.currentTimeMillis() - start;
+				if (elapsed >= timeoutMillis) {
+					throw new IOException("Application is not ready after " + TimeUnit.MILLISECONDS.toSeconds(elapsed)
+							+ " seconds: " + url + " " + failure);
+				}
+
+				long delay = Math.min(Math.max(MIN_DELAY, backoff.delay(attempt)), timeoutMillis - elapsed);
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for " + url);
+				}
+			}
+		}
+
+		long ready = System.currentTimeMillis() - start;
+		log.info("Application is ready after " + ready + " ms");
+		return ready;
+	}
+
+	static List<Probe> parse(String checks) {
+		List<Probe> probes = new ArrayList<Probe>();
+		if (checks == null) {
+			return probes;
+		}
+
+		for (String line : checks.split("\\r?\\n")) {
+			String[] parts = line.trim().split("\\s+", 3);
+			if (parts[0].length() == 0) {
+				continue;
+			}
+
+			String path = parts[0].startsWith("/") ? parts[0] : "/" + parts[0];
+			int status = HttpURLConnection.HTTP_OK;
+			String text = null;
+			if (parts.length > 1) {
+				if (parts[1].matches("\\d{3}")) {
+					status = Integer.parseInt(parts[1]);
+					text = parts.length > 2 ? parts[2] : null;
+				} else {
+					text = line.trim().substring(parts[0].length()).trim();
+				}
+			}
+			probes.add(new Probe(path, status, text));
+		}
+
+		return probes;
+	}
+
+	static final class Probe {
+		final String path;
+		final int status;
+		final String text;
+
+		Probe(String path, int status, String text) {
+			this.path = path;
+			this.status = status;
+			this.text = text;
+		}
+
+		String describe() {
+			return "HTTP " + status + (text == null ? "" : " containing '" + text + "'");
+		}
+
+		/**
+		 * @return null if the response is as expected, otherwise what was wrong with it
+		 */
+		String check(String url) {
+			HttpURLConnection connection = null;
+			try {
+				connection = (HttpURLConnection) new URL(url).openConnection();
+				connection.setConnectTimeout(REQUEST_TIMEOUT);
+				connection.setReadTimeout(REQUEST_TIMEOUT);
+				connection.setUseCaches(false);
+
+				int actual = connection.getResponseCode();
+				if (actual != status) {
+					return "returned HTTP " + actual;
+				}
+
+				if (text != null) {
+					InputStream in = actual >= 400 ? connection.getErrorStream() : connection.getInputStream();
+					String body = in == null ? "" : readBody(in);
+					if (!body.contains(text)) {
+						return "doesn't contain '" + text + "'";
+					}
+				}
+				return null;
+			} catch (IOException e) {
+				return "failed: " + e.getMessage();
+			} finally {
+				if (connection != null) {
+					connection.disconnect();
+				}
+			}
+		}
+
+		private static String readBody(InputStream in) throws IOException {
+			try {
+				byte[] buffer = new byte[MAX_BODY];
+				int length = 0, read;
+				while (length < MAX_BODY && (read = in.read(buffer, length, MAX_BODY - length)) != -1) {
+					length += read;
+				}
+				return new String(buffer, 0, length, "UTF-8");
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+	}
+}
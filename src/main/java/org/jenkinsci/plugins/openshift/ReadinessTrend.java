@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import jenkins.model.TransientActionFactory;
+
+/**
+ * Time to ready of the recent builds of a job, shown on the job page of jobs which run readiness checks.
+ */
+public class ReadinessTrend implements Action {
+	private static final int MAX_BUILDS = 30;
+
+	private final Job<?, ?> job;
+
+	ReadinessTrend(Job<?, ?> job) {
+		this.job = job;
+	}
+
+	/**
+	 * @return the readiness of the recent builds, oldest first
+	 */
+	public List<Sample> getSamples() {
+		List<Sample> samples = new ArrayList<Sample>();
+		int builds = 0;
+		for (Run<?, ?> run = job.getLastCompletedBuild(); run != null && builds < MAX_BUILDS; run = run.getPreviousCompletedBuild(), builds++) {
+			ReadinessAction action = run.getAction(ReadinessAction.class);
+			if (action != null) {
+				samples.add(new Sample(run, action));
+			}
+		}
+		Collections.reverse(samples);
+		return samples;
+	}
+
+	/**
+	 * @return the longest time to ready of the samples in ms, for scaling the chart
+	 */
+	public long getMax() {
+		long max = 1;
+		for (Sample sample : getSamples()) {
+			max = Math.max(max, sample.getAction().getTimeToReady());
+		}
+		return max;
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Time to ready trend";
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+
+	public static final class Sample {
+		private final Run<?, ?> run;
+		private final ReadinessAction action;
+
+		Sample(Run<?, ?> run, ReadinessAction action) {
+			this.run = run;
+			this.action = action;
+		}
+
+		public Run<?, ?> getRun() {
+			return run;
+		}
+
+		public ReadinessAction getAction() {
+			return action;
+		}
+	}
+
+	@Extension
+	@SuppressWarnings("rawtypes")
+	public static class Factory extends TransientActionFactory<Job> {
+		@Override
+		public Class<Job> type() {
+			return Job.class;
+		}
+
+		@Override
+		public Collection<? extends Action> createFor(Job target) {
+			Run<?, ?> last = target.getLastCompletedBuild();
+			if (last == null || last.getAction(ReadinessAction.class) == null) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(new ReadinessTrend(target));
+		}
+	}
+}
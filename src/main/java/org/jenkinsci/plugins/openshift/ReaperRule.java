@@ -0,0 +1,69 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.util.regex.Pattern;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Applications which the {@link ApplicationReaper} deletes when they haven't been deployed for a while.
+ */
+public class ReaperRule {
+	private String serverName;
+	private String domains;
+	private String appNamePattern;
+	private int ttlHours;
+	private int maxDeletions;
+	private boolean dryRun;
+
+	/**
+	 * @param domains space or comma separated domains, * for all domains
+	 * @param appNamePattern a glob such as pr-* or a regular expression in slashes
+	 */
+	@DataBoundConstructor
+	public ReaperRule(String serverName, String domains, String appNamePattern, int ttlHours,
+			int maxDeletions, boolean dryRun) {
+		this.serverName = serverName;
+		this.domains = domains;
+		this.appNamePattern = appNamePattern;
+		this.ttlHours = ttlHours;
+		this.maxDeletions = maxDeletions;
+		this.dryRun = dryRun;
+	}
+
+	public String getServerName() {
+		return serverName;
+	}
+
+	public String getDomains() {
+		return domains;
+	}
+
+	public String getAppNamePattern() {
+		return appNamePattern;
+	}
+
+	/**
+	 * @return hours since the last deployment after which an application is deleted
+	 */
+	public int getTtlHours() {
+		return ttlHours;
+	}
+
+	/**
+	 * @return max applications deleted by one run of the reaper
+	 */
+	public int getMaxDeletions() {
+		return maxDeletions;
+	}
+
+	/**
+	 * @return whether stale applications are only reported
+	 */
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	public Pattern toPattern() {
+		return DeleteApplication.toPattern(appNamePattern.trim());
+	}
+}
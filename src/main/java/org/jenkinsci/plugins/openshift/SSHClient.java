@@ -3,11 +3,17 @@ package org.jenkinsci.plugins.openshift;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Retry;
+import org.jenkinsci.plugins.openshift.util.ScopedJSchLogger;
 
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
@@ -20,85 +26,201 @@ import com.openshift.client.IApplication;
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
  */
 public class SSHClient {
-	private static final String BINARY_DEPLOY_CMD = "oo-binary-deploy";
+	static final String BINARY_DEPLOY_CMD = "oo-binary-deploy";
+
+	private static final long EXIT_POLL_MILLIS = 50;
 	
 	private Logger log = Logger.NOOP;
 	
 	private IApplication app;
+
+	private String sshUrl;
 	
 	private String sshPrivateKey;
 	
+	private Retry retry = Retry.DEFAULT;
+	
+	private int retries;
+	
+	private String serverName = "";
+	
 	public SSHClient(IApplication app) {
+		this(app, app.getSshUrl());
+	}
+
+	/**
+	 * @param sshUrl a gear of the application other than the head gear
+	 */
+	public SSHClient(IApplication app, String sshUrl) {
 		super();
 		this.app = app;
+		this.sshUrl = sshUrl;
 	}
 	
 	public void setLogger(Logger log) {
 		this.log = log;
 	}
 	
+	/**
+	 * @param serverName the server of the application, labels the metrics of the client
+	 */
+	public void setServerName(String serverName) {
+		this.serverName = serverName;
+	}
+
 	public void setSSHPrivateKey(String sshPrivateKey) {
 		this.sshPrivateKey = sshPrivateKey;
 	}
 
+	/**
+	 * The content sent to the binary deploy command.
+	 */
+	public interface Payload {
+		String getDescription();
+
+		void writeTo(OutputStream out) throws IOException;
+	}
+
 	public void deploy(File deployment) throws IOException {
-		try {
-			log.info("Deployging " + deployment.getAbsolutePath());
-			log.info("Starting SSH connection to " + app.getSshUrl());
-			URI uri = new URI(app.getSshUrl());
+		deploy(filePayload(deployment));
+	}
 
-			JSch jsch = new JSch();
+	/**
+	 * @return a payload which sends the file as it is
+	 */
+	public static Payload filePayload(final File deployment) {
+		return new Payload() {
+			public String getDescription() {
+				return deployment.getAbsolutePath();
+			}
 
-			// confgure logger
-			JSch.setLogger(new com.jcraft.jsch.Logger() {
-				private final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(JSch.class.getName());
-				
-				public void log(int level, String message) {
-					LOG.fine(message);
-					
-					if (isEnabled(level)) {
-						try {
-							log.info(message);
-						} catch (Exception e) {}
-					}
+			public void writeTo(OutputStream out) throws IOException {
+				FileInputStream in = new FileInputStream(deployment);
+				try {
+					IOUtils.copy(in, out);
+				} finally {
+					in.close();
+					out.close();
 				}
+			}
+		};
+	}
 
-				public boolean isEnabled(int level) {
-					return level >= WARN;
-				}
-			});
+	/**
+	 * Stream the payload to the gear. The payload is written while the deploy command runs, so
+	 * nothing needs to be buffered.
+	 *
+	 * @throws IOException if the deploy command fails
+	 */
+	public void deploy(Payload payload) throws IOException {
+		log.info("Deployging " + payload.getDescription());
+		int status = exec(BINARY_DEPLOY_CMD, payload, log.getOutputStream());
+		if (status != 0) {
+			throw new IOException("Deployment of " + payload.getDescription() + " failed with exit status " + status);
+		}
+	}
+
+	/**
+	 * Run a command on the gear and wait for it to finish.
+	 *
+	 * @param input written to the standard input of the command or null
+	 * @param output receives the standard output of the command. The standard error goes to the log.
+	 * @return the exit status of the command
+	 */
+	public int exec(String command, Payload input, OutputStream output) throws IOException {
+		long start = System.currentTimeMillis();
+		int status = -1;
+		try {
+			log.info("Starting SSH connection to " + sshUrl);
+			URI uri = new URI(sshUrl);
+
+			JSch jsch = new JSch();
+
+			// route JSch messages of this session to the build log
+			ScopedJSchLogger.bind(log);
 
 			// add ssh keys
 			jsch.addIdentity(sshPrivateKey);
 			log.info("Using SSH private key " + sshPrivateKey);
 
-			Session session = jsch.getSession(uri.getUserInfo(), uri.getHost());
-			session.setConfig("StrictHostKeyChecking", "no");
-			session.connect(10000);
+			Session session = connect(jsch, uri);
 
-			FileInputStream in = new FileInputStream(deployment);
 			Channel channel = session.openChannel("exec");
 			((ChannelExec) channel).setErrStream(new CloseShieldOutputStream(log.getOutputStream()));
-			((ChannelExec) channel).setOutputStream(new CloseShieldOutputStream(log.getOutputStream()));
-			((ChannelExec) channel).setInputStream(in);
-			((ChannelExec) channel).setCommand(BINARY_DEPLOY_CMD);
+			((ChannelExec) channel).setOutputStream(new CloseShieldOutputStream(output));
+			((ChannelExec) channel).setCommand(command);
+			OutputStream out = channel.getOutputStream();
 
 			channel.connect();
 			try {
-				while (!channel.isEOF()) {
+				if (input != null) {
+					input.writeTo(out); // closing the stream signals the end of input to the command
 				}
+			} catch (IOException e) {
+				channel.disconnect();
+				session.disconnect();
+				throw e;
+			} finally {
+				IOUtils.closeQuietly(out);
+			}
 
-				in.close();
+			try {
+				// the exit status arrives after the output, the channel is closed once both are in
+				while (!channel.isClosed()) {
+					Thread.sleep(EXIT_POLL_MILLIS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while running '" + command + "'");
+			} finally {
 				channel.disconnect();
 				session.disconnect();
-			} catch (Throwable t) {
-				t.printStackTrace();
 			}
-			
+
+			status = channel.getExitStatus();
+			return status;
 		} catch (JSchException e) {
-			throw new IOException("Failed to deploy the binary. " + e.getMessage(), e);
+			throw new IOException("Failed to run '" + command + "'. " + e.getMessage(), e);
 		} catch (URISyntaxException e) {
 			throw new IOException(e.getMessage(), e);
+		} finally {
+			ScopedJSchLogger.unbind();
+			record(command, System.currentTimeMillis() - start, status);
 		}
 	}
+
+	private void record(String command, long millis, int status) {
+		String operation = BINARY_DEPLOY_CMD.equals(command) ? "deploy" : "exec";
+		Metrics.increment("openshift_ssh_operations_total", "server", serverName, "operation", operation, "result", status == 0 ? "success" : "failure");
+		Metrics.observe("openshift_ssh_duration_millis", millis, "server", serverName, "operation", operation);
+	}
+
+	/**
+	 * Nothing is sent to the gear before the session is established, so connecting is retried
+	 * on transient failures.
+	 */
+	private Session connect(JSch jsch, URI uri) throws JSchException, IOException {
+		for (int attempt = 1; ; attempt++) {
+			Session session = jsch.getSession(uri.getUserInfo(), uri.getHost());
+			session.setConfig("StrictHostKeyChecking", "no");
+			try {
+				session.connect(10000);
+				return session;
+			} catch (JSchException e) {
+				if (!retry.shouldRetry(attempt, e)) {
+					throw e;
+				}
+				retries++;
+				Metrics.increment("openshift_ssh_retries_total", "server", serverName, "operation", "connect");
+				retry.backoff(attempt, "SSH connection to " + uri.getHost(), e, log);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of SSH connections that were retried
+	 */
+	public int getRetries() {
+		return retries;
+	}
 }
@@ -1,7 +1,11 @@
 package org.jenkinsci.plugins.openshift;
 
 import hudson.util.Secret;
+
+import java.util.List;
+
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 /**
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
@@ -12,7 +16,10 @@ public class Server {
 	private String username;
 	private String password;
 	private Secret secret;
-
+	private double brokerRateLimit;
+	private int maxConcurrentBrokerRequests;
+	private int brokerConnectTimeout;
+	private int brokerReadTimeout;
 	
 	@DataBoundConstructor
 	public Server(String name, String brokerAddress, String username,
@@ -32,6 +39,13 @@ public class Server {
 		return brokerAddress;
 	}
 
+	/**
+	 * @return the broker nodes of the server, the broker address may list several separated by spaces or commas
+	 */
+	public List<String> getBrokerAddresses() {
+		return BrokerEndpoints.parse(brokerAddress);
+	}
+
 	public String getUsername() {
 		return username;
 	}
@@ -39,4 +53,52 @@ public class Server {
 	public String getPassword() {
 		return Secret.toString(secret);
 	}
+
+	/**
+	 * @return max broker requests per second shared by all builds, 0 for unlimited
+	 */
+	public double getBrokerRateLimit() {
+		return brokerRateLimit;
+	}
+
+	@DataBoundSetter
+	public void setBrokerRateLimit(double brokerRateLimit) {
+		this.brokerRateLimit = brokerRateLimit;
+	}
+
+	/**
+	 * @return max broker requests in flight shared by all builds, 0 for unlimited
+	 */
+	public int getMaxConcurrentBrokerRequests() {
+		return maxConcurrentBrokerRequests;
+	}
+
+	@DataBoundSetter
+	public void setMaxConcurrentBrokerRequests(int maxConcurrentBrokerRequests) {
+		this.maxConcurrentBrokerRequests = maxConcurrentBrokerRequests;
+	}
+
+	/**
+	 * @return seconds to wait for a connection to the broker, 0 for the default
+	 */
+	public int getBrokerConnectTimeout() {
+		return brokerConnectTimeout;
+	}
+
+	@DataBoundSetter
+	public void setBrokerConnectTimeout(int brokerConnectTimeout) {
+		this.brokerConnectTimeout = brokerConnectTimeout;
+	}
+
+	/**
+	 * @return seconds to wait for a response of the broker, 0 for the default
+	 */
+	public int getBrokerReadTimeout() {
+		return brokerReadTimeout;
+	}
+
+	@DataBoundSetter
+	public void setBrokerReadTimeout(int brokerReadTimeout) {
+		this.brokerReadTimeout = brokerReadTimeout;
+	}
 }
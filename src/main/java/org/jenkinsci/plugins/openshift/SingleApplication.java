@@ -0,0 +1,91 @@
+package org.jenkinsci.plugins.openshift;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import net.sf.json.JSONObject;
+
+import com.openshift.client.ApplicationScale;
+import com.openshift.client.IApplication;
+
+/**
+ * An application built from the single application resource of the broker REST API.
+ *
+ * The client library only materializes applications from the listing of all applications of the
+ * domain. The basic properties are answered from the resource; any other method loads the
+ * application from the listing once and is delegated to it, as are all calls after that.
+ */
+final class SingleApplication implements InvocationHandler {
+	/**
+	 * Loads the application from the listing of the domain.
+	 */
+	interface Loader {
+		IApplication load();
+	}
+
+	private final JSONObject data;
+
+	private final Loader loader;
+
+	private IApplication delegate;
+
+	private SingleApplication(JSONObject data, Loader loader) {
+		this.data = data;
+		this.loader = loader;
+	}
+
+	/**
+	 * @param data the <code>data</code> object of the application resource
+	 */
+	static IApplication create(JSONObject data, Loader loader) {
+		return (IApplication) Proxy.newProxyInstance(IApplication.class.getClassLoader(),
+				new Class<?>[] {IApplication.class}, new SingleApplication(data, loader));
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (name.equals("equals") && args != null && args.length == 1) {
+			return proxy == args[0];
+		} else if (name.equals("hashCode") && args == null) {
+			return System.identityHashCode(proxy);
+		}
+
+		IApplication loaded = getDelegate(false);
+		if (loaded == null && args == null) {
+			if (name.equals("getName")) {
+				return data.getString("name");
+			} else if (name.equals("getUUID")) {
+				return data.getString("id");
+			} else if (name.equals("getApplicationUrl")) {
+				return data.getString("app_url");
+			} else if (name.equals("getGitUrl")) {
+				return data.getString("git_url");
+			} else if (name.equals("getInitialGitUrl")) {
+				return data.optString("initial_git_url", null);
+			} else if (name.equals("getSshUrl")) {
+				return data.getString("ssh_url");
+			} else if (name.equals("getDeploymentType") && data.has("deployment_type")) {
+				return data.getString("deployment_type");
+			} else if (name.equals("getApplicationScale")) {
+				return data.optBoolean("scalable") ? ApplicationScale.SCALE : ApplicationScale.NO_SCALE;
+			} else if (name.equals("toString")) {
+				return "Application '" + data.getString("name") + "'";
+			}
+		}
+
+		try {
+			return method.invoke(loaded == null ? getDelegate(true) : loaded, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private synchronized IApplication getDelegate(boolean load) {
+		if (delegate == null && load) {
+			delegate = loader.load();
+		}
+		return delegate;
+	}
+}
@@ -0,0 +1,267 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.XmlFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+import com.openshift.client.IApplication;
+
+/**
+ * Pre-created applications which deployments claim instead of creating a new application.
+ *
+ * OpenShift applications can't be renamed, so a claimed standby application keeps its name. The
+ * claim maps the requested application name to it and is stored in
+ * <code>$JENKINS_HOME/openshift-standby-claims.xml</code>. Deployments and deletions of the
+ * requested name go to the claimed application.
+ */
+public final class StandbyPool {
+	private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(StandbyPool.class.getName());
+
+	private static StandbyPool instance;
+
+	private final XmlFile file;
+
+	private HashMap<String, String> claims = new HashMap<String, String>();
+
+	StandbyPool(File file) {
+		this.file = new XmlFile(Jenkins.XSTREAM2, file);
+		load();
+	}
+
+	public static synchronized StandbyPool get() {
+		if (instance == null) {
+			instance = new StandbyPool(new File(Jenkins.getInstance().getRootDir(), "openshift-standby-claims.xml"));
+		}
+		return instance;
+	}
+
+	/**
+	 * The claims are only locked while they are read or changed, not during the broker requests:
+	 * a standby application is claimed first, verified afterwards and released again if it is gone.
+	 *
+	 * @return the name of the application to deploy to: the application claimed for the name before,
+	 * 		a standby application claimed now, or the name itself if it exists or no pool matches
+	 */
+	public String resolve(OpenShiftV2Client client, Server server, String domain, String appName,
+			String cartridges, String gearProfile, boolean autoScale, Logger log) {
+		String key = key(server.getName(), domain, appName);
+
+		String claimed = getClaim(key);
+		if (claimed != null) {
+			if (client.appExists(claimed, domain)) {
+				log.info("Application '" + appName + "' is the standby application '" + claimed + "'");
+				return claimed;
+			}
+
+			release(key, claimed); // deleted outside of Jenkins
+		}
+
+		StandbyPoolTemplate template = findTemplate(server.getName(), domain, cartridges, gearProfile, autoScale);
+		if (template == null || client.appExists(appName, domain)) {
+			return appName;
+		}
+
+		for (IApplication standby : client.findApps(domain, template.getNamePattern())) {
+			String name = standby.getName();
+			synchronized (this) {
+				claimed = claims.get(key);
+				if (claimed != null) {
+					log.info("Application '" + appName + "' is the standby application '" + claimed + "'");
+					return claimed; // claimed by a concurrent deployment of the same name
+				}
+				if (claims.containsValue(name)) {
+					continue;
+				}
+				claims.put(key, name);
+				save();
+			}
+
+			boolean exists = false;
+			try {
+				exists = client.appExists(name, domain);
+			} finally {
+				if (!exists) {
+					release(key, name); // deleted since it was listed
+				}
+			}
+
+			if (exists) {
+				log.info("Claimed standby application '" + name + "' [" + standby.getApplicationUrl() + "] for '" + appName + "'");
+				Metrics.increment("openshift_standby_claims_total", "result", "claimed");
+				return name;
+			}
+		}
+
+		log.info("No standby application available for '" + appName + "'. Creating it.");
+		Metrics.increment("openshift_standby_claims_total", "result", "empty");
+		return appName;
+	}
+
+	private synchronized String getClaim(String key) {
+		return claims.get(key);
+	}
+
+	/**
+	 * Release the claim unless it was replaced by another one meanwhile.
+	 */
+	private synchronized void release(String key, String claimedAppName) {
+		if (claimedAppName.equals(claims.get(key))) {
+			claims.remove(key);
+			save();
+		}
+	}
+
+	/**
+	 * @return the application claimed for the name or null
+	 */
+	public String getClaim(String serverName, String domain, String appName) {
+		return getClaim(key(serverName, domain, appName));
+	}
+
+	public synchronized void releaseClaim(String serverName, String domain, String appName) {
+		if (claims.remove(key(serverName, domain, appName)) != null) {
+			save();
+		}
+	}
+
+	/**
+	 * @return whether the application is an unclaimed application of a standby pool
+	 */
+	public synchronized boolean isIdleStandby(String serverName, String domain, String appName) {
+		for (StandbyPoolTemplate template : Utils.getStandbyPoolTemplates()) {
+			if (serverName.equals(template.getServerName()) && domain.equals(template.getDomain())
+					&& template.getNamePattern().matcher(appName).matches()) {
+				return !claims.containsValue(appName);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Release the claim on a standby application which was deleted under its own name.
+	 */
+	public synchronized void releaseClaimOf(String serverName, String domain, String claimedAppName) {
+		String prefix = key(serverName, domain, "");
+		for (Iterator<Map.Entry<String, String>> it = claims.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, String> claim = it.next();
+			if (claim.getKey().startsWith(prefix) && claim.getValue().equals(claimedAppName)) {
+				it.remove();
+				save();
+			}
+		}
+	}
+
+	/**
+	 * @return the names the applications in the domain were claimed for, by the name of the claimed application
+	 */
+	public synchronized Map<String, String> getRequestedNames(String serverName, String domain) {
+		String prefix = key(serverName, domain, "");
+		Map<String, String> requested = new HashMap<String, String>();
+		for (Map.Entry<String, String> claim : claims.entrySet()) {
+			if (claim.getKey().startsWith(prefix)) {
+				requested.put(claim.getValue(), claim.getKey().substring(prefix.length()));
+			}
+		}
+		return requested;
+	}
+
+	/**
+	 * @param requestedNames the names the applications were claimed for, by the name of the claimed application
+	 * @return a pattern which also matches the claimed applications whose requested name matches the pattern
+	 */
+	static Pattern withClaims(Pattern pattern, Map<String, String> requestedNames) {
+		StringBuilder regex = new StringBuilder("(?:").append(pattern.pattern()).append(')');
+		for (Map.Entry<String, String> claim : requestedNames.entrySet()) {
+			if (pattern.matcher(claim.getValue()).matches()) {
+				regex.append('|').append(Pattern.quote(claim.getKey()));
+			}
+		}
+		return Pattern.compile(regex.toString(), pattern.flags());
+	}
+
+	/**
+	 * Create standby applications until every pool has the configured number of unclaimed ones.
+	 */
+	public void topUp(Logger log) {
+		for (StandbyPoolTemplate template : Utils.getStandbyPoolTemplates()) {
+			Server server = Utils.findServer(template.getServerName());
+			if (server == null) {
+				log.error("OpenShift server '" + template.getServerName() + "' of a standby pool doesn't exist");
+				continue;
+			}
+
+			try {
+				OpenShiftV2Client client = new OpenShiftV2Client(server);
+				client.setLogger(log);
+
+				List<IApplication> existing = client.findApps(template.getDomain(), template.getNamePattern());
+				int idle = 0;
+				synchronized (this) {
+					for (IApplication app : existing) {
+						if (!claims.containsValue(app.getName())) {
+							idle++;
+						}
+					}
+				}
+				Metrics.set("openshift_standby_idle", idle, "server", server.getName(), "pool", template.getNamePrefix());
+
+				for (int i = idle; i < template.getSize(); i++) {
+					String name = template.getNamePrefix() + RandomStringUtils.randomAlphanumeric(6).toLowerCase();
+					log.info("Creating standby application '" + name + "' in domain '" + template.getDomain() + "'");
+					client.getOrCreateApp(name, template.getDomain(), Arrays.asList(template.getCartridges().trim().split("\\s+")),
+							template.getGearProfile(), null, template.isAutoScale(), true);
+					Metrics.increment("openshift_standby_created_total", "server", server.getName());
+				}
+			} catch (RuntimeException e) {
+				log.error("Failed to top up the standby pool " + template.getNamePrefix() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private StandbyPoolTemplate findTemplate(String serverName, String domain, String cartridges, String gearProfile, boolean autoScale) {
+		for (StandbyPoolTemplate template : Utils.getStandbyPoolTemplates()) {
+			if (template.getSize() > 0 && template.matches(serverName, domain, cartridges, gearProfile, autoScale)) {
+				return template;
+			}
+		}
+		return null;
+	}
+
+	private static String key(String serverName, String domain, String appName) {
+		return serverName + "/" + domain + "/" + appName;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (file.exists()) {
+			try {
+				claims = (HashMap<String, String>) file.read();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Failed to load the standby application claims from " + file, e);
+			}
+		}
+	}
+
+	private void save() {
+		try {
+			file.write(claims);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to save the standby application claims to " + file, e);
+		}
+	}
+}
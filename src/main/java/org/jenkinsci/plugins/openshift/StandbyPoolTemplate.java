@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Applications of the same server, domain, cartridges, gear profile and scaling which are created in
+ * advance, so that a deployment to a new application can claim one instead of waiting for it to be
+ * created. See {@link StandbyPool}.
+ */
+public class StandbyPoolTemplate {
+	private String serverName;
+	private String domain;
+	private String cartridges;
+	private String gearProfile;
+	private boolean autoScale;
+	private int size;
+
+	@DataBoundConstructor
+	public StandbyPoolTemplate(String serverName, String domain, String cartridges, String gearProfile, boolean autoScale, int size) {
+		this.serverName = serverName;
+		this.domain = domain;
+		this.cartridges = cartridges;
+		this.gearProfile = gearProfile;
+		this.autoScale = autoScale;
+		this.size = size;
+	}
+
+	public String getServerName() {
+		return serverName;
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	public String getCartridges() {
+		return cartridges;
+	}
+
+	public String getGearProfile() {
+		return gearProfile;
+	}
+
+	public boolean isAutoScale() {
+		return autoScale;
+	}
+
+	/**
+	 * @return the number of idle applications to keep
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public boolean matches(String serverName, String domain, String cartridges, String gearProfile, boolean autoScale) {
+		return defaultString(this.serverName).equals(serverName)
+				&& defaultString(this.domain).equals(domain)
+				&& cartridgeSet(this.cartridges).equals(cartridgeSet(cartridges))
+				&& defaultString(this.gearProfile).equals(defaultString(gearProfile))
+				&& this.autoScale == autoScale;
+	}
+
+	/**
+	 * Standby applications are named after the template, so they are found by listing the domain and
+	 * templates with the same domain don't take each other's applications.
+	 */
+	public String getNamePrefix() {
+		String id = cartridgeSet(cartridges) + "|" + defaultString(gearProfile) + "|" + autoScale;
+		return "sb" + Integer.toHexString(id.hashCode() & 0xffffff);
+	}
+
+	public Pattern getNamePattern() {
+		return Pattern.compile(Pattern.quote(getNamePrefix()) + "[a-z0-9]+");
+	}
+
+	private static Set<String> cartridgeSet(String cartridges) {
+		Set<String> set = new TreeSet<String>(new HashSet<String>(Arrays.asList(defaultString(cartridges).trim().split("\\s+"))));
+		set.remove("");
+		return set;
+	}
+}
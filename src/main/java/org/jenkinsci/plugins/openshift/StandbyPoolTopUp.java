@@ -0,0 +1,33 @@
+package org.jenkinsci.plugins.openshift;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.openshift.util.JenkinsLogger;
+import org.jenkinsci.plugins.openshift.util.Utils;
+
+/**
+ * Creates standby applications for the pools configured in the global settings.
+ */
+@Extension
+public class StandbyPoolTopUp extends AsyncPeriodicWork {
+	public StandbyPoolTopUp() {
+		super("OpenShift standby pool top-up");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return TimeUnit.MINUTES.toMillis(5);
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		if (!Utils.getStandbyPoolTemplates().isEmpty()) {
+			StandbyPool.get().topUp(new JenkinsLogger(listener));
+		}
+	}
+}
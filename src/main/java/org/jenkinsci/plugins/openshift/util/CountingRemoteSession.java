@@ -0,0 +1,91 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.eclipse.jgit.transport.RemoteSession;
+
+/**
+ * Counts the bytes JGit sends through an SSH session, which for a push is the size of the pack
+ * plus a few bytes of protocol.
+ */
+public class CountingRemoteSession implements RemoteSession {
+	private final RemoteSession session;
+
+	private final AtomicLong bytesSent;
+
+	public CountingRemoteSession(RemoteSession session, AtomicLong bytesSent) {
+		this.session = session;
+		this.bytesSent = bytesSent;
+	}
+
+	public Process exec(String commandName, int timeout) throws IOException {
+		return new CountingProcess(session.exec(commandName, timeout));
+	}
+
+	public void disconnect() {
+		session.disconnect();
+	}
+
+	private class CountingProcess extends Process {
+		private final Process process;
+
+		private final OutputStream out;
+
+		public CountingProcess(Process process) {
+			this.process = process;
+			this.out = new ProxyOutputStream(process.getOutputStream()) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					super.write(b, off, len);
+					bytesSent.addAndGet(len);
+				}
+
+				@Override
+				public void write(byte[] b) throws IOException {
+					super.write(b);
+					bytesSent.addAndGet(b.length);
+				}
+
+				@Override
+				public void write(int b) throws IOException {
+					super.write(b);
+					bytesSent.incrementAndGet();
+				}
+			};
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return out;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return process.getInputStream();
+		}
+
+		@Override
+		public InputStream getErrorStream() {
+			return process.getErrorStream();
+		}
+
+		@Override
+		public int waitFor() throws InterruptedException {
+			return process.waitFor();
+		}
+
+		@Override
+		public int exitValue() {
+			return process.exitValue();
+		}
+
+		@Override
+		public void destroy() {
+			process.destroy();
+		}
+	}
+}
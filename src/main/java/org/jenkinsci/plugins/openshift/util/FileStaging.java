@@ -0,0 +1,156 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import hudson.Functions;
+import hudson.os.PosixAPI;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.logging.Level;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Stages deployment packages on the master without copying them through the Java heap. A file is
+ * hardlinked when the source and the destination are on the same file system, otherwise it is
+ * copied with {@link FileChannel#transferTo}, which lets the kernel move the bytes.
+ *
+ * An existing destination is always deleted first. Writing into it could otherwise change the
+ * source of an earlier hardlink, e.g. a package in the {@link org.jenkinsci.plugins.openshift.ArtifactStore}.
+ */
+public final class FileStaging {
+	private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(FileStaging.class.getName());
+
+	private static final long CHUNK = 64 * 1024 * 1024;
+
+	public enum Method {HARDLINK, TRANSFER, DOWNLOAD}
+
+	private FileStaging() {
+	}
+
+	/**
+	 * How a file was staged.
+	 */
+	public static final class Result {
+		private final Method method;
+		private final long bytes;
+		private final long millis;
+
+		Result(Method method, long bytes, long millis) {
+			this.method = method;
+			this.bytes = bytes;
+			this.millis = millis;
+			Metrics.increment("openshift_staged_files_total", "method", method.name().toLowerCase());
+			Metrics.add("openshift_staged_bytes_total", bytes, "method", method.name().toLowerCase());
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return the bytes written, 0 for a hardlink
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return method.name().toLowerCase() + ", " + FileUtils.byteCountToDisplaySize(bytes) + " in " + millis + " ms";
+		}
+	}
+
+	/**
+	 * Stage the file as the destination, keeping its modification time.
+	 */
+	public static Result stage(File source, File destination) throws IOException {
+		long start = System.currentTimeMillis();
+		prepare(destination);
+
+		if (link(source, destination)) {
+			return new Result(Method.HARDLINK, 0, System.currentTimeMillis() - start);
+		}
+
+		FileInputStream in = new FileInputStream(source);
+		try {
+			FileOutputStream out = new FileOutputStream(destination);
+			try {
+				FileChannel inChannel = in.getChannel();
+				FileChannel outChannel = out.getChannel();
+				long size = inChannel.size();
+				for (long position = 0; position < size; ) {
+					position += inChannel.transferTo(position, Math.min(CHUNK, size - position), outChannel);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+
+		if (destination.length() != source.length()) {
+			throw new IOException("Failed to copy '" + source + "' to '" + destination + "'");
+		}
+		destination.setLastModified(source.lastModified());
+		return new Result(Method.TRANSFER, destination.length(), System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Write the stream to the destination through the channel of the file.
+	 */
+	public static Result download(InputStream in, File destination) throws IOException {
+		long start = System.currentTimeMillis();
+		prepare(destination);
+
+		ReadableByteChannel source = Channels.newChannel(in);
+		FileOutputStream out = new FileOutputStream(destination);
+		try {
+			FileChannel channel = out.getChannel();
+			long position = 0;
+			for (long transferred; (transferred = channel.transferFrom(source, position, CHUNK)) > 0; ) {
+				position += transferred;
+			}
+			return new Result(Method.DOWNLOAD, position, System.currentTimeMillis() - start);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void prepare(File destination) throws IOException {
+		if (destination.isDirectory()) {
+			throw new IOException("File '" + destination + "' exists but is a directory");
+		}
+		if (destination.exists() && !destination.delete()) {
+			throw new IOException("Failed to replace '" + destination + "'");
+		}
+		File parent = destination.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Failed to create directory '" + parent + "'");
+		}
+	}
+
+	/**
+	 * @return whether the hardlink was created. It fails across file systems and where links aren't supported.
+	 */
+	private static boolean link(File source, File destination) {
+		if (Functions.isWindows()) {
+			return false;
+		}
+
+		try {
+			return PosixAPI.jnr().link(source.getAbsolutePath(), destination.getAbsolutePath()) == 0;
+		} catch (RuntimeException e) {
+			LOG.log(Level.FINE, "Failed to link '" + destination + "' to '" + source + "'", e);
+			return false;
+		} catch (LinkageError e) {
+			LOG.log(Level.FINE, "Hardlinks are not supported", e);
+			return false;
+		}
+	}
+}
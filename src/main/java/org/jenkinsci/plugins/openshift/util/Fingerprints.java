@@ -0,0 +1,201 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import hudson.Functions;
+import hudson.Util;
+import hudson.os.PosixAPI;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Digests of deployment packages. A file is split into chunks of 8 MB which are hashed with SHA-256
+ * in parallel; the digest is the SHA-256 of the file size and the chunk digests. It identifies the
+ * content like a plain SHA-256 but is not equal to it. The chunks are read with positional reads
+ * into a buffer of each hashing thread, so the memory used doesn't grow with the file size.
+ *
+ * Digests are cached per JVM by path, size, modification time and inode, so an unchanged file is
+ * read only once, on the master as well as on a slave node through {@link Digest}.
+ */
+public final class Fingerprints {
+	private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(Fingerprints.class.getName());
+
+	static final int CHUNK = 8 * 1024 * 1024;
+
+	private static final int READ_BUFFER = 1024 * 1024;
+
+	private static final int MAX_CACHED = 1000;
+
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+			new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift fingerprint"));
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(READ_BUFFER);
+		}
+	};
+
+	private static final Map<String, String> CACHE = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private Fingerprints() {
+	}
+
+	/**
+	 * @return the hex encoded digest of the file
+	 */
+	public static String digest(File file) throws IOException {
+		String key = key(file);
+		synchronized (CACHE) {
+			String digest = CACHE.get(key);
+			if (digest != null) {
+				Metrics.increment("openshift_fingerprint_cache_hits_total");
+				return digest;
+			}
+		}
+
+		Metrics.increment("openshift_fingerprint_cache_misses_total");
+		long start = System.nanoTime();
+		String digest = compute(file);
+		long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+
+		Metrics.add("openshift_fingerprint_bytes_total", file.length());
+		Metrics.add("openshift_fingerprint_micros_total", micros);
+		Metrics.set("openshift_fingerprint_throughput_bytes_per_second", file.length() * 1000000 / micros);
+
+		// a file which changed while it was hashed gets a new key and is hashed again next time
+		if (key.equals(key(file))) {
+			synchronized (CACHE) {
+				CACHE.put(key, digest);
+			}
+		}
+		return digest;
+	}
+
+	static String compute(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		List<Future<byte[]>> chunks = new ArrayList<Future<byte[]>>();
+		try {
+			final FileChannel channel = in.getChannel();
+			long size = channel.size();
+
+			long position = 0;
+			do {
+				final long start = position;
+				final long end = Math.min(position + CHUNK, size);
+				chunks.add(EXECUTOR.submit(new Callable<byte[]>() {
+					public byte[] call() throws Exception {
+						return digest(channel, start, end);
+					}
+				}));
+				position += CHUNK;
+			} while (position < size);
+
+			MessageDigest md = sha256();
+			md.update(Long.toString(size).getBytes("US-ASCII"));
+			for (Future<byte[]> chunk : chunks) {
+				md.update(chunk.get());
+			}
+			return Util.toHexString(md.digest());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while computing the digest of " + file);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to compute the digest of " + file, e.getCause());
+		} finally {
+			for (Future<byte[]> chunk : chunks) {
+				chunk.cancel(false);
+			}
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the digest of the bytes from start to end, read into the buffer of the current thread
+	 */
+	private static byte[] digest(FileChannel channel, long start, long end) throws IOException {
+		MessageDigest md = sha256();
+		ByteBuffer buffer = BUFFERS.get();
+		long position = start;
+		while (position < end) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - position));
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("The file was truncated at " + position + " bytes while computing its digest");
+			}
+			buffer.flip();
+			md.update(buffer);
+			position += read;
+		}
+		return md.digest();
+	}
+
+	private static MessageDigest sha256() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static String key(File file) {
+		return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "|" + inode(file);
+	}
+
+	/**
+	 * @return the inode of the file, 0 where it isn't available
+	 */
+	private static long inode(File file) {
+		if (Functions.isWindows()) {
+			return 0;
+		}
+
+		try {
+			return PosixAPI.jnr().stat(file.getAbsolutePath()).ino();
+		} catch (RuntimeException e) {
+			LOG.log(java.util.logging.Level.FINE, "Failed to stat " + file, e);
+			return 0;
+		} catch (LinkageError e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Computes the digest of a file on the node where it resides.
+	 */
+	public static final class Digest extends MasterToSlaveFileCallable<String> {
+		private static final long serialVersionUID = 1L;
+
+		public String invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+			return digest(f);
+		}
+	}
+}
@@ -2,7 +2,7 @@ package org.jenkinsci.plugins.openshift.util;
 
 import java.io.OutputStream;
 
-import hudson.model.BuildListener;
+import hudson.model.TaskListener;
 
 /**
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
@@ -10,15 +10,15 @@ import hudson.model.BuildListener;
 public class JenkinsLogger implements Logger {
 	private static final String DEFAULT_PREFIX = "OPENSHIFT";
 
-	private BuildListener listener;
+	private TaskListener listener;
 	
 	private String prefix;
 
-	public JenkinsLogger(BuildListener listener) {
+	public JenkinsLogger(TaskListener listener) {
 		this(listener, DEFAULT_PREFIX);
 	}
 	
-	public JenkinsLogger(BuildListener listener, String prefix) {
+	public JenkinsLogger(TaskListener listener, String prefix) {
 		super();
 		this.listener = listener;
 		this.prefix = prefix;
@@ -0,0 +1,233 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory counters, gauges and histograms of the plugin. Metrics are identified by a name and label
+ * pairs and are rendered in the Prometheus style e.g. {@code openshift_broker_retries_total{server="prod"}}.
+ */
+public final class Metrics {
+	private static final ConcurrentMap<String, AtomicLong> COUNTERS = new ConcurrentHashMap<String, AtomicLong>();
+
+	private static final ConcurrentMap<String, AtomicLong> GAUGES = new ConcurrentHashMap<String, AtomicLong>();
+
+	private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * @param labels label names and values e.g. {@code "server", "prod", "operation", "getDomains"}
+	 */
+	public static void increment(String name, String... labels) {
+		add(name, 1, labels);
+	}
+
+	public static void add(String name, long value, String... labels) {
+		get(COUNTERS, key(name, labels)).addAndGet(value);
+	}
+
+	public static void set(String name, long value, String... labels) {
+		get(GAUGES, key(name, labels)).set(value);
+	}
+
+	/**
+	 * Record a duration in a histogram with the {@link Histogram#BUCKETS default buckets}.
+	 */
+	public static void observe(String name, long millis, String... labels) {
+		String key = key(name, labels);
+		Histogram histogram = HISTOGRAMS.get(key);
+		if (histogram == null) {
+			Histogram existing = HISTOGRAMS.putIfAbsent(key, histogram = new Histogram());
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+
+		histogram.observe(millis);
+	}
+
+	public static Map<String, Long> getCounters() {
+		return snapshot(COUNTERS);
+	}
+
+	public static Map<String, Long> getGauges() {
+		return snapshot(GAUGES);
+	}
+
+	public static Map<String, Histogram> getHistograms() {
+		return new TreeMap<String, Histogram>(HISTOGRAMS);
+	}
+
+	/**
+	 * Write all metrics in the Prometheus text exposition format.
+	 */
+	public static void writeText(PrintWriter out) {
+		Map<String, List<String>> families = new TreeMap<String, List<String>>();
+		for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+			family(families, counter.getKey(), "counter").add(counter.getKey() + " " + counter.getValue());
+		}
+		for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+			family(families, gauge.getKey(), "gauge").add(gauge.getKey() + " " + gauge.getValue());
+		}
+		for (Map.Entry<String, Histogram> histogram : getHistograms().entrySet()) {
+			String name = name(histogram.getKey());
+			String labels = histogram.getKey().substring(name.length());
+			List<String> samples = family(families, histogram.getKey(), "histogram");
+
+			long[] buckets = histogram.getValue().getBuckets();
+			for (int i = 0; i < buckets.length; i++) {
+				String le = i < Histogram.BUCKETS.length ? String.valueOf(Histogram.BUCKETS[i]) : "+Inf";
+				String bucketLabels = labels.isEmpty() ? "{le=\"" + le + "\"}" : labels.substring(0, labels.length() - 1) + ",le=\"" + le + "\"}";
+				samples.add(name + "_bucket" + bucketLabels + " " + buckets[i]);
+			}
+			samples.add(name + "_sum" + labels + " " + histogram.getValue().getSum());
+			samples.add(name + "_count" + labels + " " + histogram.getValue().getCount());
+		}
+
+		// the samples of a metric are written together, after its type
+		for (List<String> samples : families.values()) {
+			for (String sample : samples) {
+				out.print(sample);
+				out.print('\n');
+			}
+		}
+	}
+
+	private static List<String> family(Map<String, List<String>> families, String key, String type) {
+		String name = name(key);
+		List<String> samples = families.get(name);
+		if (samples == null) {
+			families.put(name, samples = new ArrayList<String>());
+			samples.add("# TYPE " + name + " " + type);
+		}
+
+		return samples;
+	}
+
+	/**
+	 * @return the name of the metric without its labels
+	 */
+	static String name(String key) {
+		int labels = key.indexOf('{');
+		return labels < 0 ? key : key.substring(0, labels);
+	}
+
+	private static AtomicLong get(ConcurrentMap<String, AtomicLong> metrics, String key) {
+		AtomicLong value = metrics.get(key);
+		if (value == null) {
+			AtomicLong existing = metrics.putIfAbsent(key, value = new AtomicLong());
+			if (existing != null) {
+				value = existing;
+			}
+		}
+
+		return value;
+	}
+
+	private static Map<String, Long> snapshot(ConcurrentMap<String, AtomicLong> metrics) {
+		Map<String, Long> snapshot = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : metrics.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		}
+
+		return snapshot;
+	}
+
+	static String key(String name, String... labels) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be name and value pairs: " + name);
+		}
+
+		if (labels.length == 0) {
+			return name;
+		}
+
+		StringBuilder key = new StringBuilder(name).append('{');
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				key.append(',');
+			}
+			String value = labels[i + 1] == null ? "" : labels[i + 1];
+			key.append(labels[i]).append("=\"").append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+		}
+
+		return key.append('}').toString();
+	}
+
+	/**
+	 * Counts of durations in ms by upper bound, with the sum and count of all durations.
+	 */
+	public static final class Histogram {
+		/**
+		 * Upper bounds in ms, from local broker calls to pushes of large archives.
+		 */
+		public static final long[] BUCKETS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000};
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong count = new AtomicLong();
+
+		void observe(long millis) {
+			int bucket = 0;
+			while (bucket < BUCKETS.length && millis > BUCKETS[bucket]) {
+				bucket++;
+			}
+
+			counts.incrementAndGet(bucket);
+			sum.addAndGet(millis);
+			count.incrementAndGet();
+		}
+
+		public long getSum() {
+			return sum.get();
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return the cumulative counts of the buckets, the last one for durations beyond all bounds
+		 */
+		public long[] getBuckets() {
+			long[] buckets = new long[counts.length()];
+			long total = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = total += counts.get(i);
+			}
+
+			return buckets;
+		}
+
+		/**
+		 * @param percentile e.g. 95
+		 * @return the upper bound of the bucket the percentile falls in, the largest bound if it is
+		 * 		beyond all bounds and 0 if nothing was recorded
+		 */
+		public long percentile(int percentile) {
+			long[] buckets = getBuckets();
+			long total = buckets[buckets.length - 1];
+			if (total == 0) {
+				return 0;
+			}
+
+			long rank = (long) Math.ceil(total * percentile / 100.0);
+			for (int i = 0; i < BUCKETS.length; i++) {
+				if (buckets[i] >= rank) {
+					return BUCKETS[i];
+				}
+			}
+
+			return BUCKETS[BUCKETS.length - 1];
+		}
+	}
+}
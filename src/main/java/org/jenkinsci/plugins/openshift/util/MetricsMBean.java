@@ -0,0 +1,97 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * The {@link Metrics} as read-only JMX attributes named like the Prometheus samples. Histograms are
+ * exposed as their count, sum, 50th and 95th percentile.
+ */
+public final class MetricsMBean implements DynamicMBean {
+	public static final ObjectName NAME = objectName("org.jenkinsci.plugins.openshift:type=Metrics");
+
+	private static ObjectName objectName(String name) {
+		try {
+			return new ObjectName(name);
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the current value of every attribute
+	 */
+	static Map<String, Long> attributes() {
+		Map<String, Long> attributes = new TreeMap<String, Long>();
+		attributes.putAll(Metrics.getCounters());
+		attributes.putAll(Metrics.getGauges());
+		for (Map.Entry<String, Metrics.Histogram> entry : Metrics.getHistograms().entrySet()) {
+			String name = Metrics.name(entry.getKey());
+			String labels = entry.getKey().substring(name.length());
+			Metrics.Histogram histogram = entry.getValue();
+
+			attributes.put(name + "_count" + labels, histogram.getCount());
+			attributes.put(name + "_sum" + labels, histogram.getSum());
+			attributes.put(name + "_p50" + labels, histogram.percentile(50));
+			attributes.put(name + "_p95" + labels, histogram.percentile(95));
+		}
+
+		return attributes;
+	}
+
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Long value = attributes().get(attribute);
+		if (value == null) {
+			throw new AttributeNotFoundException(attribute);
+		}
+
+		return value;
+	}
+
+	public AttributeList getAttributes(String[] names) {
+		Map<String, Long> attributes = attributes();
+		AttributeList list = new AttributeList();
+		for (String name : names) {
+			if (attributes.containsKey(name)) {
+				list.add(new Attribute(name, attributes.get(name)));
+			}
+		}
+
+		return list;
+	}
+
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+	}
+
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> infos = new ArrayList<MBeanAttributeInfo>();
+		for (String name : attributes().keySet()) {
+			infos.add(new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false));
+		}
+
+		return new MBeanInfo(getClass().getName(), "Metrics of the OpenShift Deployer plugin",
+				infos.toArray(new MBeanAttributeInfo[infos.size()]), null, new MBeanOperationInfo[0], null);
+	}
+}
@@ -0,0 +1,144 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip stream which compresses fixed size blocks on all processors. Every block is written as a
+ * separate gzip member. A concatenation of members is a valid gzip file, which gunzip and tar
+ * decompress as a whole.
+ *
+ * Blocks are written to the underlying stream in order. The number of blocks in flight is bounded
+ * so that memory use doesn't depend on the size of the stream.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS,
+			new NamingThreadFactory(new DaemonThreadFactory(), "OpenShift gzip"));
+
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	private final OutputStream out;
+
+	private final int blockSize;
+
+	private final int maxInFlight;
+
+	private final LinkedList<Future<byte[]>> inFlight = new LinkedList<Future<byte[]>>();
+
+	private byte[] block;
+
+	private int count;
+
+	private boolean closed;
+
+	public ParallelGzipOutputStream(OutputStream out) {
+		this(out, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ParallelGzipOutputStream(OutputStream out, int blockSize) {
+		this.out = out;
+		this.blockSize = blockSize;
+		this.maxInFlight = THREADS * 2;
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == blockSize) {
+			submitBlock();
+		}
+		block[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == blockSize) {
+				submitBlock();
+			}
+
+			int n = Math.min(len, blockSize - count);
+			System.arraycopy(b, off, block, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Compresses the pending data and writes everything compressed so far. Flushing often results in
+	 * small blocks and a worse compression ratio.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (count > 0) {
+			submitBlock();
+		}
+		while (!inFlight.isEmpty()) {
+			writeBlock(inFlight.removeFirst());
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			flush();
+		} finally {
+			for (Future<byte[]> f : inFlight) {
+				f.cancel(true);
+			}
+			out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = block;
+		final int length = count;
+		inFlight.addLast(EXECUTOR.submit(new Callable<byte[]>() {
+			public byte[] call() throws IOException {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+				GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192);
+				gzip.write(data, 0, length);
+				gzip.close();
+				return compressed.toByteArray();
+			}
+		}));
+
+		block = new byte[blockSize];
+		count = 0;
+
+		while (inFlight.size() >= maxInFlight) {
+			writeBlock(inFlight.removeFirst());
+		}
+	}
+
+	private void writeBlock(Future<byte[]> compressed) throws IOException {
+		try {
+			out.write(compressed.get());
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to compress", e.getCause());
+		}
+	}
+}
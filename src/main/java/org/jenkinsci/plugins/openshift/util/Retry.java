@@ -0,0 +1,139 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retry policy with exponential backoff and full jitter. Callers loop over the attempts themselves
+ * so that the checked exceptions of the retried operation are preserved:
+ *
+ * <pre>
+ * for (int attempt = 1; ; attempt++) {
+ *     try {
+ *         return operation();
+ *     } catch (IOException e) {
+ *         if (!retry.shouldRetry(attempt, e)) throw e;
+ *         retry.backoff(attempt, "operation", e, log);
+ *     }
+ * }
+ * </pre>
+ */
+public final class Retry {
+	public static final Retry DEFAULT = new Retry(3, 1000, 30000);
+
+	/**
+	 * The message of the IOException which {@link java.net.HttpURLConnection} throws for an error
+	 * response. The HTTP client of the OpenShift client library wraps it into its exceptions.
+	 */
+	private static final Pattern HTTP_STATUS = Pattern.compile("^Server returned HTTP response code: (\\d{3}) for URL");
+
+	private final Random random = new Random();
+
+	private final int maxAttempts;
+
+	private final long baseDelay;
+
+	private final long maxDelay;
+
+	/**
+	 * @param maxAttempts number of attempts including the first one
+	 * @param baseDelay delay in ms before the first retry, doubled for each retry
+	 * @param maxDelay upper bound in ms of a single delay
+	 */
+	public Retry(int maxAttempts, long baseDelay, long maxDelay) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public boolean shouldRetry(int attempt, Throwable failure) {
+		return attempt < maxAttempts && isTransient(failure);
+	}
+
+	/**
+	 * @return a random delay between 0 and the exponential backoff of the attempt
+	 */
+	public long delay(int attempt) {
+		long backoff = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 20));
+		synchronized (random) {
+			return (long) (random.nextDouble() * backoff);
+		}
+	}
+
+	/**
+	 * Sleep before the next attempt and report the retry in the log.
+	 */
+	public void backoff(int attempt, String operation, Throwable failure, Logger log) throws InterruptedIOException {
+		long delay = delay(attempt);
+		log.info(operation + " failed (" + failure.getMessage() + "). Retrying in " + delay + " ms, attempt " + (attempt + 1) + "/" + maxAttempts);
+
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while retrying " + operation);
+		}
+	}
+
+	/**
+	 * A failure is transient if the connection failed, timed out or the server reported being
+	 * temporarily unavailable (502, 503 or 504). The HTTP client of the OpenShift client library
+	 * doesn't expose the status codes, hence they are taken from the HttpURLConnection exception it
+	 * wraps. Other messages are never searched for status codes.
+	 */
+	public static boolean isTransient(Throwable failure) {
+		for (Throwable t = failure; t != null; t = t.getCause()) {
+			if (t instanceof SocketTimeoutException || t instanceof ConnectException
+					|| t instanceof NoRouteToHostException || t instanceof UnknownHostException
+					|| t instanceof SocketException) {
+				return true;
+			}
+
+			String name = t.getClass().getSimpleName();
+			if (name.equals("OpenShiftTimeoutException")) {
+				return true;
+			}
+
+			if (name.equals("JSchException") && t.getMessage() != null 
+					&& (t.getMessage().contains("timeout") || t.getMessage().contains("connection is closed") || t.getMessage().contains("reset"))) {
+				return true;
+			}
+
+			int status = httpStatus(t);
+			if (status == 502 || status == 503 || status == 504) {
+				return true;
+			}
+
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return the status of the HTTP error response the exception was thrown for, -1 if it wasn't
+	 * 		thrown by HttpURLConnection for an error response
+	 */
+	static int httpStatus(Throwable t) {
+		if (!(t instanceof IOException) || t.getMessage() == null) {
+			return -1;
+		}
+
+		Matcher matcher = HTTP_STATUS.matcher(t.getMessage());
+		return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+	}
+}
@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.openshift.util;
+
+import com.jcraft.jsch.JSch;
+
+/**
+ * JSch only supports a single JVM-wide logger. This logger is installed once and
+ * routes every message to the {@link Logger} bound to the thread that opened the
+ * session, so concurrent deployments never write into each other's console.
+ *
+ * The binding is not inherited: threads of shared pools and timers would keep the
+ * logger of whichever build created them. Each thread opening sessions binds its
+ * logger itself. Messages of the thread JSch runs each session on only go to the
+ * Jenkins log; the connection and authentication are logged by the calling thread.
+ */
+public final class ScopedJSchLogger implements com.jcraft.jsch.Logger {
+	private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(JSch.class.getName());
+
+	private static final ScopedJSchLogger INSTANCE = new ScopedJSchLogger();
+
+	private static volatile boolean installed = false;
+
+	private final ThreadLocal<Logger> scope = new ThreadLocal<Logger>();
+
+	private ScopedJSchLogger() {
+	}
+
+	/**
+	 * Bind the logger to the current thread while it opens and uses SSH sessions.
+	 * Must be paired with {@link #unbind()} in a finally block.
+	 */
+	public static void bind(Logger log) {
+		install();
+		INSTANCE.scope.set(log);
+	}
+
+	public static void unbind() {
+		INSTANCE.scope.remove();
+	}
+
+	private static synchronized void install() {
+		if (!installed) {
+			JSch.setLogger(INSTANCE);
+			installed = true;
+		}
+	}
+
+	public void log(int level, String message) {
+		LOG.fine(message);
+
+		Logger log = scope.get();
+		if (log != null && level >= WARN) {
+			try {
+				log.info(message);
+			} catch (Exception e) {}
+		}
+	}
+
+	public boolean isEnabled(int level) {
+		return level >= WARN || LOG.isLoggable(java.util.logging.Level.FINE);
+	}
+}
@@ -2,12 +2,15 @@ package org.jenkinsci.plugins.openshift.util;
 
 import static java.util.Collections.EMPTY_LIST;
 import static org.apache.commons.io.FilenameUtils.getName;
+import static org.apache.commons.lang3.text.StrMatcher.quoteMatcher;
+import static org.apache.commons.lang3.text.StrMatcher.spaceMatcher;
 import hudson.AbortException;
 import hudson.FilePath;
-import hudson.model.BuildListener;
+import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.model.Computer;
 import hudson.model.Hudson;
+import hudson.remoting.VirtualChannel;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -18,7 +21,9 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import jenkins.model.Jenkins.MasterComputer;
@@ -27,9 +32,13 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.text.StrTokenizer;
+import org.jenkinsci.plugins.openshift.ArtifactStore;
 import org.jenkinsci.plugins.openshift.DeployApplication;
 import org.jenkinsci.plugins.openshift.OpenShiftV2Client.DeploymentType;
+import org.jenkinsci.plugins.openshift.ReaperRule;
 import org.jenkinsci.plugins.openshift.Server;
+import org.jenkinsci.plugins.openshift.StandbyPoolTemplate;
 
 /**
  * @author Siamak Sadeghianfar <ssadeghi@redhat.com>
@@ -54,17 +63,15 @@ public final class Utils {
         return null;
 	}
 	
-	public static void copyURLToFile(final URL source, final File destination,
+	public static FileStaging.Result copyURLToFile(final URL source, final File destination,
 			final int connectionTimeout, final int readTimeout)
 			throws IOException {
 		final URLConnection connection = source.openConnection();
 		connection.setConnectTimeout(connectionTimeout);
 		connection.setReadTimeout(readTimeout);
 		InputStream is = connection.getInputStream();
-		FileOutputStream output = openOutputStream(destination);
 		try {
-			IOUtils.copy(is, output);
-			output.close();
+			return FileStaging.download(is, destination);
 		} finally {
 			IOUtils.closeQuietly(is);
 		}
@@ -95,16 +102,16 @@ public final class Utils {
 		return new FileOutputStream(file, false);
 	}
 	
-	public static void abort(BuildListener listener, String msg) throws AbortException {
+	public static void abort(TaskListener listener, String msg) throws AbortException {
     	listener.error("[OPENSHIFT] " + msg);
     	throw new AbortException();
 	}
 
-	public static void abort(BuildListener listener, Exception e) throws AbortException {
+	public static void abort(TaskListener listener, Exception e) throws AbortException {
 		abort(listener, ExceptionUtils.getStackTrace(e));
 	}
 	
-	public static void log(BuildListener listener, String msg) throws AbortException {
+	public static void log(TaskListener listener, String msg) throws AbortException {
     	listener.getLogger().println("[OPENSHIFT] " + msg);
 	}
 	
@@ -124,6 +131,33 @@ public final class Utils {
 		return servers == null ? (List<Server>) EMPTY_LIST : servers;
 	}
 	
+	@SuppressWarnings("unchecked")
+	public static List<StandbyPoolTemplate> getStandbyPoolTemplates() {
+		List<StandbyPoolTemplate> templates = getDeployApplicationDescriptor().getStandbyPools();
+		return templates == null ? (List<StandbyPoolTemplate>) EMPTY_LIST : templates;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static List<ReaperRule> getReaperRules() {
+		List<ReaperRule> rules = getDeployApplicationDescriptor().getReaperRules();
+		return rules == null ? (List<ReaperRule>) EMPTY_LIST : rules;
+	}
+
+	/**
+	 * @return max size of the artifact store in bytes, 0 if the store is disabled
+	 */
+	public static long getArtifactStoreQuota() {
+		return getDeployApplicationDescriptor().getArtifactStoreQuota() * 1024 * 1024;
+	}
+
+	/**
+	 * @return how much slower than the median of the recent deployments in percent a deploy phase is
+	 * 		flagged, 0 if never
+	 */
+	public static int getDeployRegressionThreshold() {
+		return getDeployApplicationDescriptor().getDeployRegressionThreshold();
+	}
+
 	public static String getSSHPrivateKey() {
 		DeployApplication.DeployApplicationDescriptor descriptor = getDeployApplicationDescriptor();
 		return descriptor.getPublicKeyPath() == null ? null : descriptor.getPublicKeyPath().replaceAll("^(.*)\\.pub$", "$1");
@@ -195,7 +229,11 @@ public final class Utils {
     }
     
 	public static void copyFileFromSlaveToMaster(AbstractBuild<?,?> build, String slavePath, String masterPath) throws IOException {
-		FilePath slaveFile = new FilePath(build.getWorkspace().getChannel(), slavePath);
+		copyFileFromSlaveToMaster(build.getWorkspace().getChannel(), slavePath, masterPath);
+	}
+
+	public static void copyFileFromSlaveToMaster(VirtualChannel channel, String slavePath, String masterPath) throws IOException {
+		FilePath slaveFile = new FilePath(channel, slavePath);
 		File masterFile = new File(masterPath);
 		
 		try {
@@ -229,8 +267,31 @@ public final class Utils {
 		}
 	}
 		
-	public static List<String> copyDeploymenstToMaster(AbstractBuild<?,?> build, BuildListener listener, 
+	public static List<String> copyDeploymenstToMaster(AbstractBuild<?,?> build, TaskListener listener, 
 			List<String> deployments, File baseDir, DeploymentType deploymentType) throws IOException {
+		return copyDeploymenstToMaster(build.getWorkspace().getChannel(), Utils.runingOnMaster(), listener, deployments, baseDir, deploymentType);
+	}
+
+	public static List<String> copyDeploymenstToMaster(AbstractBuild<?,?> build, TaskListener listener, 
+			List<String> deployments, File baseDir, DeploymentType deploymentType, List<ArtifactStore.Lease> leases) throws IOException {
+		return copyDeploymenstToMaster(build.getWorkspace().getChannel(), Utils.runingOnMaster(), listener, deployments, baseDir, deploymentType, leases);
+	}
+
+	/**
+	 * @param channel the channel to the node where the deployments reside
+	 * @param local whether the deployments are already on the master node
+	 */
+	public static List<String> copyDeploymenstToMaster(VirtualChannel channel, boolean local, TaskListener listener, 
+			List<String> deployments, File baseDir, DeploymentType deploymentType) throws IOException {
+		return copyDeploymenstToMaster(channel, local, listener, deployments, baseDir, deploymentType, null);
+	}
+
+	/**
+	 * @param leases if not null, deployments from slave nodes are staged in the {@link ArtifactStore}
+	 *               and the leases are added to the list. They must be released after the deployment.
+	 */
+	public static List<String> copyDeploymenstToMaster(VirtualChannel channel, boolean local, TaskListener listener, 
+			List<String> deployments, File baseDir, DeploymentType deploymentType, List<ArtifactStore.Lease> leases) throws IOException {
 		List<String> localDeployments = new ArrayList<String>();
 		for (String deployment : deployments) {
 			if (isURL(deployment)) {
@@ -239,7 +300,8 @@ public final class Utils {
 				log(listener, "Downloading the deployment from '" + deployment + "' to '" +  localDeployment.getAbsolutePath() + "'");
 				
 				try {
-					copyURLToFile(new URL(deployment), localDeployment, 10000, 10000);
+					FileStaging.Result staged = copyURLToFile(new URL(deployment), localDeployment, 10000, 10000);
+					log(listener, "Downloaded " + getName(deployment) + " (" + staged + ")");
 				} catch (Exception e) {
 					abort(listener, e);
 				}
@@ -247,13 +309,18 @@ public final class Utils {
 				localDeployments.add(localDeployment.getAbsolutePath());
 				
 			} else {
-				if (Utils.runingOnMaster()) { // deployment is already local
+				if (local) { // deployment is already local
 					localDeployments.add(deployment);
 					
+				} else if (leases != null && getArtifactStoreQuota() > 0) {
+					ArtifactStore.Lease lease = ArtifactStore.get().stage(channel, deployment, listener);
+					leases.add(lease);
+					localDeployments.add(lease.getFile().getAbsolutePath());
+
 				} else {
 					String localFile = baseDir + File.separator + getName(deployment);
 					log(listener, "Copying the deployment from slave node to '" +  localFile + "'");
-					copyFileFromSlaveToMaster(build, deployment, localFile);
+					copyFileFromSlaveToMaster(channel, deployment, localFile);
     				localDeployments.add(localFile);
 				}
 			}
@@ -262,6 +329,84 @@ public final class Utils {
 		return localDeployments;
 	}
 
+	/**
+	 * Resolve the deployment packages at the given path relative to the workspace.
+	 */
+	public static List<String> findDeployments(FilePath workspace, String deploymentPackage, DeploymentType deploymentType, 
+			TaskListener listener) throws AbortException {
+		List<String> deployments = new ArrayList<String>();
+
+		VirtualChannel channel = workspace.getChannel();
+		String filePath = null;
+		if (new File(deploymentPackage).isAbsolute()) {
+			filePath = deploymentPackage;
+		} else {
+			filePath = workspace + File.separator + deploymentPackage;
+		}
+		
+		FilePath dir = new FilePath(channel, filePath);
+
+		LOG.fine("Using hudson.FilePath for resolving content for deploy:\n    Channel: " + channel + " \n    FilePath: " + filePath);
+
+		try {
+			if (!dir.exists()) {
+				abort(listener, "Directory '" + dir + "' doesn't exist. No deployments found!");
+			}
+		} catch (AbortException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new AbortException(e.getMessage());
+		}
+
+		try {
+			if (dir.isDirectory()) {
+				FilePath[] deploymentFiles = dir.list("*.ear,*.war");
+				if (deploymentType == DeploymentType.BINARY) {
+					// prefer a prebuilt binary deployment archive, otherwise one is assembled from the WARs and EARs
+					FilePath[] archives = dir.list("*.tar.gz");
+					if (archives.length > 0) {
+						deploymentFiles = archives;
+					}
+				}
+
+				for (FilePath file : deploymentFiles) {
+					deployments.add(file.getRemote());
+					
+					LOG.fine("Adding " + file.getRemote() + " to deployment list");
+				}
+			} else if (!dir.isDirectory() 
+					&& (dir.getRemote().toLowerCase().endsWith(".ear") 
+							|| dir.getRemote().toLowerCase().endsWith(".war")
+							|| dir.getRemote().toLowerCase().endsWith(".tar.gz"))) { // Handle single Files
+				deployments.add(dir.getRemote());
+				
+				LOG.fine("Adding " + dir.getRemote() + " to the deployment list");
+			}
+			
+		} catch (Exception e) {
+			throw new AbortException(e.getMessage());
+		}
+
+		return deployments;
+	}
+
+	public static Map<String, String> parseEnvironmentVariables(String environmentVariables, TaskListener listener) throws AbortException {
+		Map<String, String> mapOfEnvironmentVariables = new HashMap<String, String>();
+
+		for (String environmentVariable :
+				new StrTokenizer(environmentVariables, spaceMatcher(), quoteMatcher()).getTokenList()) {
+
+			if (environmentVariable.contains("=")) {
+				String[] parts = environmentVariable.split("=", 2);
+				mapOfEnvironmentVariables.put(parts[0], parts[1]);
+			} else {
+				abort(listener, "Invalid environment variable: " + environmentVariable);
+			}
+		}
+
+		return mapOfEnvironmentVariables;
+	}
+
 	private static String getURLDeploymentName(String deployment, DeploymentType deploymentType) {
 		if (!isURL(deployment)) {
 			throw new IllegalArgumentException("Deployment paht is not a url: " + deployment);
@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ArtifactStoreTest {
+	private File root;
+
+	private ArtifactStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("artifacts", "");
+		root.delete();
+		store = new ArtifactStore(root);
+	}
+
+	@Test
+	public void lookupByDigest() throws Exception {
+		add("aaa", "app.war", 10, 1000);
+
+		ArtifactStore.Lease lease = store.lookup("aaa", "other.war");
+		assertNotNull(lease);
+		assertEquals("other.war", lease.getFile().getName());
+		assertTrue(lease.getFile().exists());
+
+		assertNull(store.lookup("bbb", "app.war"));
+	}
+
+	@Test
+	public void lookupUnderANewNameLeavesOnlyTheCopy() throws Exception {
+		add("aaa", "app.war", 10, 1000);
+
+		store.lookup("aaa", "other.war").release();
+		store.lookup("aaa", "other.war").release();
+
+		assertEquals(2, new File(root, "aaa").list().length);
+		assertEquals(1, root.list().length);
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedWithoutLease() throws Exception {
+		add("old", "app.war", 100, 1000);
+		add("leased", "app.war", 100, 2000);
+		add("new", "app.war", 100, 3000);
+
+		ArtifactStore.Lease lease = store.lookup("leased", "app.war");
+		new File(root, "leased").setLastModified(500); // oldest, but leased
+
+		store.evict(200);
+
+		assertFalse(new File(root, "old").exists());
+		assertTrue(new File(root, "leased").exists());
+		assertTrue(new File(root, "new").exists());
+
+		lease.release();
+		store.evict(100);
+		assertFalse(new File(root, "leased").exists());
+		assertTrue(new File(root, "new").exists());
+		assertEquals(1, root.list().length);
+	}
+
+	private void add(String digest, String name, int size, long lastUsed) throws IOException {
+		File dir = new File(root, digest);
+		FileUtils.writeByteArrayToFile(new File(dir, name), new byte[size]);
+		dir.setLastModified(lastUsed);
+	}
+}
@@ -0,0 +1,52 @@
+package org.jenkinsci.plugins.openshift;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BrokerEndpointsTest {
+
+	@Test
+	public void parsesSeveralAddresses() {
+		assertEquals(asList("a.example.com", "b.example.com"), BrokerEndpoints.parse(" a.example.com, b.example.com "));
+		assertEquals(asList("openshift.redhat.com"), BrokerEndpoints.parse("openshift.redhat.com"));
+	}
+
+	@Test
+	public void ranksHealthyEndpointsByMedianResponseTime() {
+		BrokerEndpoints endpoints = new BrokerEndpoints("test", asList("a", "b", "c"));
+		assertEquals(asList("a", "b", "c"), addresses(endpoints.rank()));
+
+		endpoints.onSuccess("a", 300);
+		endpoints.onSuccess("b", 100);
+		endpoints.onSuccess("c", 200);
+		assertEquals(asList("b", "c", "a"), addresses(endpoints.rank()));
+
+		endpoints.onFailure("b");
+		assertEquals(asList("c", "a", "b"), addresses(endpoints.rank()));
+	}
+
+	@Test
+	public void percentilesOfTheLastSamples() {
+		BrokerEndpoints endpoints = new BrokerEndpoints("test", asList("a"));
+		for (int i = 1; i <= 100; i++) {
+			endpoints.onSuccess("a", i);
+		}
+
+		BrokerEndpoints.Endpoint endpoint = endpoints.getEndpoints().get(0);
+		assertEquals(90, endpoint.percentile(50));
+		assertEquals(99, endpoint.percentile(95));
+	}
+
+	private static List<String> addresses(List<BrokerEndpoints.Endpoint> endpoints) {
+		List<String> addresses = new ArrayList<String>();
+		for (BrokerEndpoints.Endpoint endpoint : endpoints) {
+			addresses.add(endpoint.getAddress());
+		}
+		return addresses;
+	}
+}
@@ -0,0 +1,164 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class BrokerRequestTest {
+	private HttpServer server;
+
+	@After
+	public void stopServer() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void requestsTheSingleApplication() throws Exception {
+		final String[] request = new String[2];
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				request[0] = exchange.getRequestURI().getPath();
+				request[1] = exchange.getRequestHeaders().getFirst("Authorization");
+				respond(exchange, request[0].endsWith("/myapp") ? 200 : 404, "{}");
+			}
+		});
+
+		assertEquals(200, new BrokerRequest(address, "user", "secret").status(BrokerRequest.applicationPath("dev", "myapp")));
+		assertEquals("/broker/rest/domain/dev/application/myapp", request[0]);
+		assertEquals("Basic dXNlcjpzZWNyZXQ=", request[1]);
+
+		assertEquals(404, new BrokerRequest(address + "/", "user", "secret").status(BrokerRequest.applicationPath("dev", "other")));
+		assertEquals("/broker/rest/domain/dev/application/other", request[0]);
+	}
+
+	@Test
+	public void sendsNoCredentialsWithoutUsername() throws Exception {
+		final String[] authorization = new String[1];
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				authorization[0] = exchange.getRequestHeaders().getFirst("Authorization");
+				respond(exchange, 200, "{}");
+			}
+		});
+
+		assertEquals(200, new BrokerRequest(address, null, null).status("/broker/rest/api"));
+		assertEquals(null, authorization[0]);
+	}
+
+	@Test
+	public void updatesTheCartridgeWithAForm() throws Exception {
+		final String[] request = new String[3];
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				request[0] = exchange.getRequestMethod();
+				request[1] = exchange.getRequestURI().getPath();
+				request[2] = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+				respond(exchange, 200, "{\"data\":{\"scales_from\":3,\"scales_to\":-1}}");
+			}
+		});
+
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		parameters.put("scales_from", "3");
+		parameters.put("scales_to", "-1");
+		BrokerRequest.Response response = new BrokerRequest(address, "user", "secret").put(BrokerRequest.cartridgePath("dev", "myapp", "jbossews-2.0"), parameters);
+
+		assertEquals("PUT", request[0]);
+		assertEquals("/broker/rest/domain/dev/application/myapp/cartridge/jbossews-2.0", request[1]);
+		assertEquals("scales_from=3&scales_to=-1", request[2]);
+		assertEquals(200, response.getStatus());
+		assertEquals(3, response.getData().getInt("scales_from"));
+		assertEquals(-1, response.getData().getInt("scales_to"));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsResponsesWithoutData() throws Exception {
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 404, "{\"messages\":[]}");
+			}
+		});
+
+		BrokerRequest.Response response = new BrokerRequest(address, "user", "secret").get(BrokerRequest.applicationPath("dev", "other"));
+
+		assertEquals(404, response.getStatus());
+		response.getData();
+	}
+
+	@Test
+	public void decompressesGzipResponses() throws Exception {
+		final String[] acceptEncoding = new String[1];
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				acceptEncoding[0] = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+				gzip.write("{\"data\":{\"name\":\"myapp\"}}".getBytes("UTF-8"));
+				gzip.close();
+
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, compressed.size());
+				OutputStream out = exchange.getResponseBody();
+				compressed.writeTo(out);
+				out.close();
+			}
+		});
+
+		BrokerRequest.Response response = new BrokerRequest(address, "user", "secret").get(BrokerRequest.applicationPath("dev", "myapp"));
+
+		assertEquals("gzip", acceptEncoding[0]);
+		assertEquals("myapp", response.getData().getString("name"));
+		assertTrue(response.getBytes() > 0);
+		assertTrue(response.getBytes() != response.getBody().length());
+	}
+
+	@Test(expected = SocketTimeoutException.class)
+	public void timesOutSlowResponses() throws Exception {
+		String address = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(2000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				respond(exchange, 200, "{}");
+			}
+		});
+
+		BrokerRequest request = new BrokerRequest(address, "user", "secret");
+		request.setTimeouts(1000, 100);
+		request.status("/broker/rest/api");
+	}
+
+	private String start(HttpHandler handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", handler);
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+}
@@ -0,0 +1,116 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class BrokerThrottleTest {
+
+	@Test
+	public void unlimitedNeverWaits() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			BrokerThrottle.Permit permit = BrokerThrottle.UNLIMITED.acquire();
+			assertEquals(0, permit.getWaitMillis());
+			permit.release();
+		}
+	}
+
+	@Test
+	public void rateLimitSpacesRequests() throws Exception {
+		BrokerThrottle throttle = new BrokerThrottle(10, 0);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 6; i++) {
+			throttle.acquire().release();
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// the burst allows 10 requests, the 11th has to wait
+		assertTrue("Burst must not be throttled: " + elapsed + " ms", elapsed < 400);
+
+		start = System.nanoTime();
+		for (int i = 0; i < 10; i++) {
+			throttle.acquire().release();
+		}
+		elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("Requests beyond the burst must be spaced: " + elapsed + " ms", elapsed >= 500);
+	}
+
+	@Test
+	public void concurrencyCapBlocksUntilRelease() throws Exception {
+		final BrokerThrottle throttle = new BrokerThrottle(0, 1);
+		BrokerThrottle.Permit first = throttle.acquire();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<BrokerThrottle.Permit> second = executor.submit(new Callable<BrokerThrottle.Permit>() {
+				public BrokerThrottle.Permit call() throws Exception {
+					return throttle.acquire();
+				}
+			});
+
+			Thread.sleep(200);
+			assertFalse("Second request must wait for the first one", second.isDone());
+
+			first.release();
+			BrokerThrottle.Permit permit = second.get(5, TimeUnit.SECONDS);
+			assertTrue(permit.getWaitMillis() >= 150);
+			permit.release();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void changingTheCapCountsRequestsInFlight() throws Exception {
+		BrokerThrottle throttle = new BrokerThrottle(0, 2);
+		BrokerThrottle.Permit first = throttle.acquire();
+		BrokerThrottle.Permit second = throttle.acquire();
+
+		throttle.configure(0, 1);
+		first.release();
+		assertFalse("The second request still holds the only permit", available(throttle));
+
+		second.release();
+		assertTrue(available(throttle));
+
+		throttle.configure(0, 3);
+		BrokerThrottle.Permit[] permits = {throttle.acquire(), throttle.acquire(), throttle.acquire()};
+		assertFalse("At most 3 requests may be in flight", available(throttle));
+		for (BrokerThrottle.Permit permit : permits) {
+			permit.release();
+		}
+	}
+
+	/**
+	 * @return whether a request could be sent without waiting
+	 */
+	private static boolean available(final BrokerThrottle throttle) throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<BrokerThrottle.Permit> permit = executor.submit(new Callable<BrokerThrottle.Permit>() {
+				public BrokerThrottle.Permit call() throws Exception {
+					return throttle.acquire();
+				}
+			});
+
+			try {
+				permit.get(200, TimeUnit.MILLISECONDS).release();
+				return true;
+			} catch (TimeoutException e) {
+				return false;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.jenkinsci.plugins.openshift.util.Retry;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test");
+
+		for (int i = 0; i < 5; i++) {
+			breaker.beforeRequest(Logger.NOOP);
+			breaker.onFailure(Logger.NOOP);
+		}
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		try {
+			breaker.beforeRequest(Logger.NOOP);
+			throw new AssertionError("An open breaker must fail fast");
+		} catch (OpenShiftException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void successResetsFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test");
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure(Logger.NOOP);
+		}
+		breaker.onSuccess(Logger.NOOP);
+		breaker.onFailure(Logger.NOOP);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void transientFailures() {
+		assertTrue(Retry.isTransient(new IOException(new SocketTimeoutException("Read timed out"))));
+		assertTrue(Retry.isTransient(new OpenShiftException("Could not request https://broker/api",
+				new IOException("Server returned HTTP response code: 503 for URL: https://broker/api"))));
+		assertFalse(Retry.isTransient(new OpenShiftException("Could not request https://broker/api",
+				new IOException("Server returned HTTP response code: 422 for URL: https://broker/api"))));
+		assertFalse(Retry.isTransient(new OpenShiftException("Could not request https://broker/api",
+				new IOException("Server returned HTTP response code: 500 for URL: https://broker/api"))));
+		assertFalse(Retry.isTransient(new OpenShiftException("Application 'app503' doesn't exist.")));
+		assertFalse(Retry.isTransient(new OpenShiftException("Could not request https://broker/api: 503 Service Unavailable")));
+	}
+
+	@Test
+	public void errorEndsTheTrialRequest() {
+		CircuitBreaker breaker = new CircuitBreaker("test");
+		for (int i = 0; i < 5; i++) {
+			breaker.afterRequest(breaker.beforeRequest(Logger.NOOP));
+			breaker.onFailure(Logger.NOOP);
+		}
+		Whitebox.setInternalState(breaker, "openedAt", 0L);
+
+		// the trial request fails with neither onSuccess nor onFailure
+		assertTrue(breaker.beforeRequest(Logger.NOOP));
+		breaker.afterRequest(true);
+
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		breaker.beforeRequest(Logger.NOOP);
+	}
+
+	@Test
+	public void onlyTheTrialRequestEndsTheTrial() {
+		CircuitBreaker breaker = new CircuitBreaker("test");
+		boolean earlier = breaker.beforeRequest(Logger.NOOP);
+		for (int i = 0; i < 5; i++) {
+			breaker.onFailure(Logger.NOOP);
+		}
+		Whitebox.setInternalState(breaker, "openedAt", 0L);
+
+		assertTrue(breaker.beforeRequest(Logger.NOOP));
+		// a request let through before the breaker opened ends while the trial is running
+		assertFalse(earlier);
+		breaker.afterRequest(earlier);
+
+		try {
+			breaker.beforeRequest(Logger.NOOP);
+			throw new AssertionError("Only one trial request is let through");
+		} catch (OpenShiftException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void jitteredDelayIsBounded() {
+		Retry retry = new Retry(5, 100, 1000);
+
+		for (int attempt = 1; attempt < 10; attempt++) {
+			long delay = retry.delay(attempt);
+			assertTrue(delay >= 0);
+			assertTrue(delay <= Math.min(1000, 100 << (attempt - 1)));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class DeleteApplicationTest {
+
+	@Test
+	public void plainNamesAreNoPatterns() {
+		assertFalse(DeleteApplication.isPattern("myapp"));
+		assertTrue(DeleteApplication.isPattern("pr*"));
+		assertTrue(DeleteApplication.isPattern("/pr[0-9]+/"));
+	}
+
+	@Test
+	public void globs() {
+		Pattern pattern = DeleteApplication.toPattern("pr*x?");
+		assertTrue(pattern.matcher("prx1").matches());
+		assertTrue(pattern.matcher("pr12x3").matches());
+		assertFalse(pattern.matcher("myprx1").matches());
+		assertFalse(pattern.matcher("prx").matches());
+	}
+
+	@Test
+	public void regularExpressions() {
+		Pattern pattern = DeleteApplication.toPattern("/pr[0-9]+/");
+		assertTrue(pattern.matcher("pr42").matches());
+		assertFalse(pattern.matcher("prx").matches());
+	}
+}
@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeployHistoryTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void flagsPhasesSlowerThanTheThreshold() throws Exception {
+		DeployHistory history = new DeployHistory(tmp.newFile());
+		for (int build = 1; build <= 10; build++) {
+			assertTrue(history.add(build, build, "app", timings(20000, 1000), 50).isEmpty());
+		}
+
+		List<String> regressions = history.add(11, 11, "app", timings(35000, 1500), 50);
+
+		assertEquals(1, regressions.size());
+		assertTrue(regressions.get(0), regressions.get(0).startsWith("deploy took 35000 ms"));
+		DeployHistory.Entry last = history.getEntries(1).get(0);
+		assertTrue(last.isRegressed(DeployTimings.DEPLOY));
+		assertFalse(last.isRegressed(DeployTimings.STAGE));
+	}
+
+	@Test
+	public void needsABaselineOfTheSameApplication() throws Exception {
+		DeployHistory history = new DeployHistory(tmp.newFile());
+		for (int build = 1; build <= 10; build++) {
+			history.add(build, build, "other", timings(1000, 1000), 50);
+		}
+
+		assertTrue(history.add(11, 11, "app", timings(60000, 1000), 50).isEmpty());
+		assertTrue(history.add(12, 12, "other", timings(60000, 1000), 0).isEmpty());
+	}
+
+	@Test
+	public void reloadsAndCompactsTheFile() throws Exception {
+		File file = tmp.newFile();
+		DeployHistory history = new DeployHistory(file);
+		for (int build = 1; build <= 2 * DeployHistory.MAX_ENTRIES + 10; build++) {
+			history.add(build, build, "app", timings(build, 1), 50);
+		}
+		FileUtils.writeStringToFile(file, FileUtils.readFileToString(file) + "damaged line\n");
+
+		assertTrue(FileUtils.readLines(file).size() < 2 * DeployHistory.MAX_ENTRIES);
+		List<DeployHistory.Entry> entries = new DeployHistory(file).getEntries(DeployHistory.MAX_ENTRIES);
+		assertEquals(DeployHistory.MAX_ENTRIES, entries.size());
+		assertEquals(2 * DeployHistory.MAX_ENTRIES + 10, entries.get(entries.size() - 1).getBuild());
+		assertEquals(Long.valueOf(1), entries.get(0).getPhases().get(DeployTimings.STAGE));
+	}
+
+	@Test
+	public void nearestRankPercentile() {
+		List<Long> values = Arrays.asList(5L, 1L, 4L, 2L, 3L);
+
+		assertEquals(3, DeployHistory.percentile(values, 50));
+		assertEquals(5, DeployHistory.percentile(values, 95));
+		assertEquals(1, DeployHistory.percentile(values, 1));
+	}
+
+	private static DeployTimings timings(long deploy, long stage) {
+		DeployTimings timings = new DeployTimings();
+		timings.add(DeployTimings.STAGE, stage);
+		timings.add(DeployTimings.DEPLOY, deploy);
+		timings.setBytes(1024);
+		return timings;
+	}
+}
@@ -0,0 +1,152 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeploymentLocksTest {
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void differentAppsDontBlockEachOther() throws Exception {
+		DeploymentLocks.Ticket first = DeploymentLocks.enqueue("server", "domain", "app1", "job #1");
+		DeploymentLocks.Ticket second = DeploymentLocks.enqueue("server", "domain", "app2", "job #2");
+
+		assertTrue(first.acquire(false));
+		assertTrue(second.acquire(false));
+
+		first.release();
+		second.release();
+	}
+
+	@Test
+	public void waitsForRunningDeployment() throws Exception {
+		DeploymentLocks.Ticket first = DeploymentLocks.enqueue("server", "domain", "app", "job #1");
+		assertTrue(first.acquire(false));
+
+		final DeploymentLocks.Ticket second = DeploymentLocks.enqueue("server", "domain", "app", "job #2");
+		assertEquals("job #1", second.getHolder());
+
+		Future<Boolean> acquired = executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return second.acquire(false);
+			}
+		});
+
+		Thread.sleep(200);
+		assertFalse("Second deployment must wait for the first one", acquired.isDone());
+
+		first.release();
+		assertTrue(acquired.get(5, TimeUnit.SECONDS));
+		second.release();
+	}
+
+	@Test
+	public void grantsTheLockInTheOrderOfEnqueueing() throws Exception {
+		DeploymentLocks.Ticket first = DeploymentLocks.enqueue("server", "domain", "app", "job #1");
+		assertTrue(first.acquire(false));
+
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		List<DeploymentLocks.Ticket> waiters = new ArrayList<DeploymentLocks.Ticket>();
+		for (int build = 2; build <= 4; build++) {
+			waiters.add(DeploymentLocks.enqueue("server", "domain", "app", "job #" + build));
+		}
+
+		// the last enqueued deployment starts waiting first
+		List<Future<?>> deployments = new ArrayList<Future<?>>();
+		for (int i = waiters.size() - 1; i >= 0; i--) {
+			final DeploymentLocks.Ticket ticket = waiters.get(i);
+			final String owner = "job #" + (i + 2);
+			deployments.add(executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					try {
+						assertTrue(ticket.acquire(false));
+						order.add(owner);
+						Thread.sleep(50);
+					} finally {
+						ticket.release();
+					}
+					return null;
+				}
+			}));
+			Thread.sleep(100);
+		}
+
+		first.release();
+		for (Future<?> deployment : deployments) {
+			deployment.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(Arrays.asList("job #2", "job #3", "job #4"), order);
+	}
+
+	@Test
+	public void latestWinsSkipsSupersededDeployments() throws Exception {
+		DeploymentLocks.Ticket first = DeploymentLocks.enqueue("server", "domain", "app", "job #1");
+		assertTrue(first.acquire(true));
+
+		final DeploymentLocks.Ticket second = DeploymentLocks.enqueue("server", "domain", "app", "job #2");
+		Future<Boolean> secondAcquired = executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return second.acquire(true);
+			}
+		});
+		Thread.sleep(200);
+
+		final DeploymentLocks.Ticket third = DeploymentLocks.enqueue("server", "domain", "app", "job #3");
+		assertFalse("Second deployment must be superseded", secondAcquired.get(5, TimeUnit.SECONDS));
+		assertEquals("job #3", second.getSupersededBy());
+		second.release();
+
+		first.release();
+		assertTrue(third.acquire(true));
+		assertNull(third.getSupersededBy());
+		third.release();
+	}
+
+	@Test
+	public void tryAcquireDoesntWait() throws Exception {
+		DeploymentLocks.Ticket first = DeploymentLocks.enqueue("server", "domain", "app", "job #1");
+		DeploymentLocks.Ticket second = DeploymentLocks.enqueue("server", "domain", "app", "job #2");
+
+		assertNull("Second deployment is not first in line", second.tryAcquire(false));
+		assertEquals(Boolean.TRUE, first.tryAcquire(false));
+		assertNull("Second deployment must wait for the first one", second.tryAcquire(false));
+
+		first.release();
+		assertEquals(Boolean.TRUE, second.tryAcquire(false));
+		second.release();
+
+		DeploymentLocks.Ticket third = DeploymentLocks.enqueue("server", "domain", "app", "job #3");
+		DeploymentLocks.Ticket fourth = DeploymentLocks.enqueue("server", "domain", "app", "job #4");
+		assertEquals(Boolean.FALSE, third.tryAcquire(true));
+		assertEquals("job #4", third.getSupersededBy());
+		third.release();
+		assertEquals(Boolean.TRUE, fourth.tryAcquire(true));
+		fourth.release();
+	}
+}
@@ -0,0 +1,49 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Test;
+
+public class DotOpenshiftSyncTest {
+
+	@Test
+	public void blobIdMatchesGit() throws Exception {
+		File file = File.createTempFile("hook", "");
+		FileUtils.writeStringToFile(file, "#!/bin/bash\necho deployed\n");
+
+		ObjectId expected = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, FileUtils.readFileToByteArray(file));
+		assertEquals(expected.name(), DotOpenshiftSync.blobId(file));
+	}
+
+	@Test
+	public void executableBitIsCompared() throws Exception {
+		assumeTrue(File.pathSeparatorChar != ';'); // Windows has no executable bit
+		File file = File.createTempFile("hook", "");
+		FileUtils.writeStringToFile(file, "#!/bin/bash\necho deployed\n");
+		String blobId = DotOpenshiftSync.blobId(file);
+
+		file.setExecutable(false);
+		assertEquals("100644 " + blobId, DotOpenshiftSync.entry(file));
+
+		file.setExecutable(true);
+		assertEquals("100755 " + blobId, DotOpenshiftSync.entry(file));
+		assertTrue(DotOpenshiftSync.isUnchanged(DotOpenshiftSync.entry(file), "100755 " + blobId));
+		assertFalse(DotOpenshiftSync.isUnchanged(DotOpenshiftSync.entry(file), "100644 " + blobId));
+	}
+
+	@Test
+	public void unknownModeComparesTheBlobIdOnly() {
+		assertTrue(DotOpenshiftSync.isUnchanged("? 1234", "100755 1234"));
+		assertFalse(DotOpenshiftSync.isUnchanged("? 1234", "100644 5678"));
+		assertFalse(DotOpenshiftSync.isUnchanged("? 1234", null));
+	}
+}
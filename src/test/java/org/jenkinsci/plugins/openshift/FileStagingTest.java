@@ -0,0 +1,45 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.openshift.util.FileStaging;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileStagingTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void restagingNeverChangesThePreviousSource() throws Exception {
+		File first = tmp.newFile("first.war");
+		FileUtils.writeStringToFile(first, "first");
+		File second = tmp.newFile("second.war");
+		FileUtils.writeStringToFile(second, "second");
+		File destination = new File(tmp.getRoot(), "repo/deployments/ROOT.war");
+
+		FileStaging.stage(first, destination);
+		assertEquals("first", FileUtils.readFileToString(destination));
+
+		FileStaging.stage(second, destination);
+		assertEquals("second", FileUtils.readFileToString(destination));
+		assertEquals("first", FileUtils.readFileToString(first));
+	}
+
+	@Test
+	public void downloadReportsBytes() throws Exception {
+		byte[] content = new byte[300000];
+		File destination = new File(tmp.getRoot(), "app.war");
+
+		FileStaging.Result result = FileStaging.download(new ByteArrayInputStream(content), destination);
+
+		assertEquals(FileStaging.Method.DOWNLOAD, result.getMethod());
+		assertEquals(content.length, result.getBytes());
+		assertEquals(content.length, destination.length());
+	}
+}
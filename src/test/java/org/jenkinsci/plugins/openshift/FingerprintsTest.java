@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import hudson.Util;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.openshift.util.Fingerprints;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FingerprintsTest {
+	private static final int CHUNK = 8 * 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void digestOfChunks() throws Exception {
+		byte[] content = new byte[CHUNK + 1000];
+		new Random(1).nextBytes(content);
+		File file = tmp.newFile("app.war");
+		FileUtils.writeByteArrayToFile(file, content);
+
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		md.update(Integer.toString(content.length).getBytes("US-ASCII"));
+		md.update(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(content, 0, CHUNK)));
+		md.update(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(content, CHUNK, content.length)));
+
+		assertEquals(Util.toHexString(md.digest()), Fingerprints.digest(file));
+	}
+
+	@Test
+	public void changedFilesAreHashedAgain() throws Exception {
+		File file = tmp.newFile("app.war");
+		FileUtils.writeStringToFile(file, "first");
+		String first = Fingerprints.digest(file);
+		assertEquals(first, Fingerprints.digest(file));
+
+		FileUtils.writeStringToFile(file, "second");
+		file.setLastModified(file.lastModified() + 2000);
+		assertFalse(first.equals(Fingerprints.digest(file)));
+	}
+
+	@Test
+	public void emptyFile() throws Exception {
+		File empty = tmp.newFile("empty.war");
+		assertEquals(64, Fingerprints.digest(empty).length());
+	}
+}
@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.openshift;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jenkinsci.plugins.openshift.util.Logger;
+import org.junit.Test;
+
+public class GearRolloutTest {
+
+	@Test
+	public void headGearIsDeployedLast() {
+		assertEquals(asList("ssh://b@gear2", "ssh://c@gear3", "ssh://a@head"),
+				GearRollout.headGearLast(asList("ssh://a@head", "ssh://b@gear2", "ssh://c@gear3"), "ssh://a@head"));
+	}
+
+	@Test
+	public void gearsWithoutHeadGearKeepTheirOrder() {
+		assertEquals(asList("ssh://b@gear2", "ssh://c@gear3"),
+				GearRollout.headGearLast(asList("ssh://b@gear2", "ssh://c@gear3"), "ssh://a@head"));
+	}
+
+	@Test
+	public void failedGearStopsTheRollout() throws Exception {
+		final List<String> deployed = Collections.synchronizedList(new ArrayList<String>());
+		GearRollout rollout = new GearRollout(null, 2) {
+			@Override
+			SSHClient sshClient(final String gear, Logger gearLog) {
+				return new SSHClient(null, gear) {
+					@Override
+					public int exec(String command, Payload input, OutputStream output) {
+						deployed.add(gear);
+						return gear.equals("ssh://b@gear2") ? 1 : 0;
+					}
+				};
+			}
+		};
+
+		try {
+			rollout.deploy(asList("ssh://a@gear1", "ssh://b@gear2", "ssh://c@gear3", "ssh://d@head"), SSHClient.filePayload(new File("app.tar.gz")));
+			fail("A non-zero exit status of a gear must fail the rollout");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("1 of 2 gears"));
+			assertTrue(e.getMessage(), e.getMessage().contains("ssh://b@gear2"));
+		}
+
+		assertEquals(2, deployed.size());
+		assertTrue(deployed.containsAll(asList("ssh://a@gear1", "ssh://b@gear2")));
+	}
+}
@@ -1,5 +1,7 @@
 package org.jenkinsci.plugins.openshift;
 
+import static org.junit.Assert.assertEquals;
+
 import com.openshift.client.IApplication;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
@@ -12,8 +14,13 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GitClientTest {
@@ -63,6 +70,41 @@ public class GitClientTest {
 		TestUtils.gitRepoContainsFile(repository, "deployment/ROOT.war");
 	}
 
+	@Test
+	public void explodeIsDeterministic() throws Exception {
+		File archive = File.createTempFile("app", ".war");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive));
+		for (String name : new String[] {"WEB-INF/web.xml", "index.jsp"}) {
+			ZipEntry entry = new ZipEntry(name);
+			entry.setTime(1000000000000L);
+			zip.putNextEntry(entry);
+			zip.write(name.getBytes("UTF-8"));
+			zip.closeEntry();
+		}
+		zip.close();
+
+		File first = createPath("Exploded");
+		File second = createPath("Exploded");
+		GitClient.explode(archive, first);
+		GitClient.explode(archive, second);
+
+		for (String name : new String[] {"WEB-INF/web.xml", "index.jsp"}) {
+			assertEquals(FileUtils.readFileToString(new File(first, name)), FileUtils.readFileToString(new File(second, name)));
+			assertEquals(new File(first, name).lastModified(), new File(second, name).lastModified());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void explodeRejectsEntriesOutsideOfTarget() throws Exception {
+		File archive = File.createTempFile("app", ".war");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive));
+		zip.putNextEntry(new ZipEntry("../evil.jsp"));
+		zip.closeEntry();
+		zip.close();
+
+		GitClient.explode(archive, createPath("Exploded"));
+	}
+
 	private static File createPath(String path) throws IOException {
 		File file = File.createTempFile(path, "");
 		file.delete();
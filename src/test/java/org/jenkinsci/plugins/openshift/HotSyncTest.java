@@ -0,0 +1,163 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HotSyncTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void checksumsUseRelativePaths() throws Exception {
+		File dir = File.createTempFile("exploded", "");
+		dir.delete();
+		FileUtils.writeStringToFile(new File(dir, "index.jsp"), "hello");
+		FileUtils.writeStringToFile(new File(dir, "WEB-INF/classes/App.class"), "");
+
+		Map<String, String> checksums = HotSync.checksums(dir);
+
+		assertEquals(2, checksums.size());
+		assertEquals("5d41402abc4b2a76b9719d911017c592", checksums.get("index.jsp"));
+		assertEquals("d41d8cd98f00b204e9800998ecf8427e", checksums.get("WEB-INF/classes/App.class"));
+	}
+
+	@Test
+	public void uploadsChangedAndRemovesDeletedFiles() throws Exception {
+		// index.jsp is unchanged, web.xml changed, old.jsp was deleted
+		FakeSSHClient ssh = new FakeSSHClient("5d41402abc4b2a76b9719d911017c592  ./index.jsp\n"
+				+ "00000000000000000000000000000000  ./WEB-INF/web.xml\n"
+				+ "11111111111111111111111111111111  ./old.jsp\n");
+
+		new HotSync(ssh, "jbosseap-6").sync(Collections.singletonList(war().getPath()), tmp.newFolder());
+
+		assertEquals(3, ssh.commands.size());
+		assertEquals("cd \"$OPENSHIFT_REPO_DIR\"/'deployments/ROOT.war' && xargs -0 rm -f --", ssh.commands.get(1));
+		assertEquals("old.jsp\0", new String(ssh.inputs.get(1), "UTF-8"));
+		assertTrue(ssh.commands.get(2).contains("tar xzf -"));
+		assertEquals(Collections.singletonList("WEB-INF/web.xml"), tarEntries(ssh.inputs.get(2)));
+	}
+
+	@Test
+	public void redeploysJBossWithTheDodeployMarker() throws Exception {
+		FakeSSHClient ssh = new FakeSSHClient("");
+
+		new HotSync(ssh, "jbosseap-6").sync(Collections.singletonList(war().getPath()), tmp.newFolder());
+
+		String command = ssh.commands.get(ssh.commands.size() - 1);
+		assertTrue(command, command.contains("cd \"$OPENSHIFT_REPO_DIR\"/'deployments/ROOT.war';"));
+		assertTrue(command, command.endsWith("touch \"$OPENSHIFT_REPO_DIR\"/'deployments/ROOT.war.dodeploy'"));
+	}
+
+	@Test
+	public void redeploysTomcatByTouchingWebXml() throws Exception {
+		FakeSSHClient ssh = new FakeSSHClient("5d41402abc4b2a76b9719d911017c592  ./index.jsp\n"
+				+ "8a96c2de2a340dc04ed12571ecccf262  ./WEB-INF/web.xml\n");
+
+		new HotSync(ssh, "jbossews-2.0 mysql-5.5").sync(Collections.singletonList(war().getPath()), tmp.newFolder());
+
+		String command = ssh.commands.get(ssh.commands.size() - 1);
+		assertTrue(command, command.contains("cd \"$OPENSHIFT_REPO_DIR\"/'webapps/ROOT';"));
+		assertTrue(command, command.endsWith("touch WEB-INF/web.xml; else touch .; fi"));
+		assertFalse(command.contains(".dodeploy"));
+	}
+
+	@Test
+	public void sendsNothingWhenNothingChanged() throws Exception {
+		FakeSSHClient ssh = new FakeSSHClient("5d41402abc4b2a76b9719d911017c592  ./index.jsp\n"
+				+ "8a96c2de2a340dc04ed12571ecccf262  ./WEB-INF/web.xml\n");
+
+		new HotSync(ssh, "jbosseap-6").sync(Collections.singletonList(war().getPath()), tmp.newFolder());
+
+		assertEquals(2, ssh.commands.size());
+		assertFalse(ssh.commands.get(1).contains("tar"));
+		assertNull(ssh.inputs.get(1));
+	}
+
+	@Test
+	public void quotesRemotePaths() {
+		assertEquals("\"$OPENSHIFT_REPO_DIR\"/'webapps/it'\\''s a $(test)'", HotSync.remotePath("webapps/it's a $(test)", ""));
+	}
+
+	private File war() throws IOException {
+		File war = tmp.newFile("app.war");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(war));
+		try {
+			zip.putNextEntry(new ZipEntry("index.jsp"));
+			zip.write("hello".getBytes("UTF-8"));
+			zip.putNextEntry(new ZipEntry("WEB-INF/web.xml"));
+			zip.write("<web-app/>".getBytes("UTF-8"));
+		} finally {
+			zip.close();
+		}
+		return war;
+	}
+
+	private static List<String> tarEntries(byte[] tarGz) throws IOException {
+		List<String> names = new ArrayList<String>();
+		TarInputStream tar = new TarInputStream(new GZIPInputStream(new ByteArrayInputStream(tarGz)));
+		try {
+			for (TarEntry entry; (entry = tar.getNextEntry()) != null;) {
+				names.add(entry.getName());
+			}
+		} finally {
+			tar.close();
+		}
+		return names;
+	}
+
+	/**
+	 * Records the commands and their input instead of running them, and answers the checksum listing.
+	 */
+	private static final class FakeSSHClient extends SSHClient {
+		private final String remoteChecksums;
+
+		final List<String> commands = new ArrayList<String>();
+
+		final List<byte[]> inputs = new ArrayList<byte[]>();
+
+		FakeSSHClient(String remoteChecksums) {
+			super(null, "ssh://uuid@app-domain.rhcloud.com");
+			this.remoteChecksums = remoteChecksums;
+		}
+
+		@Override
+		public int exec(String command, Payload input, OutputStream output) throws IOException {
+			commands.add(command);
+			if (input == null) {
+				inputs.add(null);
+			} else {
+				ByteArrayOutputStream in = new ByteArrayOutputStream();
+				input.writeTo(in);
+				inputs.add(in.toByteArray());
+			}
+
+			if (command.contains("md5sum")) {
+				output.write(remoteChecksums.getBytes("UTF-8"));
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LastDeploymentsTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void unknownApplicationsCountFromFirstSeen() throws Exception {
+		File file = new File(tmp.getRoot(), "last-deployments.xml");
+		long before = System.currentTimeMillis();
+
+		LastDeployments deployments = new LastDeployments(file);
+		long firstSeen = deployments.getOrRecord("server", "dev", "pr-1");
+
+		assertTrue(firstSeen >= before);
+		assertEquals(firstSeen, deployments.getOrRecord("server", "dev", "pr-1"));
+		assertEquals(firstSeen, new LastDeployments(file).getOrRecord("server", "dev", "pr-1"));
+	}
+
+	@Test
+	public void removedApplicationsAreForgotten() throws Exception {
+		File file = new File(tmp.getRoot(), "last-deployments.xml");
+
+		LastDeployments deployments = new LastDeployments(file);
+		deployments.record("server", "dev", "pr-1");
+		long deployed = deployments.getOrRecord("server", "dev", "pr-1");
+		Thread.sleep(5);
+		deployments.remove("server", "dev", "pr-1");
+
+		assertTrue(new LastDeployments(file).getOrRecord("server", "dev", "pr-1") > deployed);
+	}
+}
@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.jenkinsci.plugins.openshift.util.Metrics;
+import org.junit.Test;
+
+public class MetricsTest {
+	@Test
+	public void histogramCountsDurationsByBucket() {
+		Metrics.observe("test_histogram_millis", 3, "server", "a");
+		Metrics.observe("test_histogram_millis", 5, "server", "a");
+		Metrics.observe("test_histogram_millis", 700, "server", "a");
+		Metrics.observe("test_histogram_millis", 400000, "server", "a");
+
+		Metrics.Histogram histogram = Metrics.getHistograms().get("test_histogram_millis{server=\"a\"}");
+		assertEquals(4, histogram.getCount());
+		assertEquals(400708, histogram.getSum());
+		assertArrayEquals(new long[] {2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 4}, histogram.getBuckets());
+		assertEquals(5, histogram.percentile(50));
+		assertEquals(1000, histogram.percentile(75));
+		assertEquals(300000, histogram.percentile(95));
+	}
+
+	@Test
+	public void writesPrometheusText() {
+		Metrics.increment("test_text_total", "server", "a");
+		Metrics.increment("test_text_total", "server", "b");
+		Metrics.increment("test_text_other_total");
+		Metrics.set("test_text_gauge", 7);
+		Metrics.observe("test_text_millis", 20);
+
+		StringWriter text = new StringWriter();
+		Metrics.writeText(new PrintWriter(text));
+		String out = text.toString();
+
+		assertTrue(out, out.contains("# TYPE test_text_total counter\ntest_text_total{server=\"a\"} 1\ntest_text_total{server=\"b\"} 1\n"));
+		assertTrue(out, out.contains("# TYPE test_text_other_total counter\ntest_text_other_total 1\n"));
+		assertTrue(out, out.contains("# TYPE test_text_gauge gauge\ntest_text_gauge 7\n"));
+		assertTrue(out, out.contains("# TYPE test_text_millis histogram\ntest_text_millis_bucket{le=\"5\"} 0\n"));
+		assertTrue(out, out.contains("test_text_millis_bucket{le=\"25\"} 1\n"));
+		assertTrue(out, out.contains("test_text_millis_bucket{le=\"+Inf\"} 1\ntest_text_millis_sum 20\ntest_text_millis_count 1\n"));
+	}
+
+	@Test
+	public void addsTheBucketBoundToTheLabels() {
+		Metrics.observe("test_labels_millis", 20, "server", "a", "operation", "push");
+
+		StringWriter text = new StringWriter();
+		Metrics.writeText(new PrintWriter(text));
+
+		assertTrue(text.toString(), text.toString().contains("test_labels_millis_bucket{server=\"a\",operation=\"push\",le=\"25\"} 1\n"));
+	}
+}
@@ -0,0 +1,31 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.openshift.util.ParallelGzipOutputStream;
+import org.junit.Test;
+
+public class ParallelGzipOutputStreamTest {
+
+	@Test
+	public void blocksDecompressAsOneStream() throws Exception {
+		byte[] data = new byte[100000];
+		new Random(42).nextBytes(data);
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, 1000);
+		gzip.write(data, 0, 12345);
+		gzip.write(data[12345]);
+		gzip.write(data, 12346, data.length - 12346);
+		gzip.close();
+
+		byte[] decompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+		assertArrayEquals(data, decompressed);
+	}
+}
@@ -0,0 +1,92 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ReadinessCheckTest {
+	private HttpServer server;
+
+	@After
+	public void stopServer() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void parsesPathStatusAndText() {
+		List<ReadinessCheck.Probe> probes = ReadinessCheck.parse("/health 200 UP and running\n\nindex.html\n/ready ok");
+
+		assertEquals(3, probes.size());
+		assertEquals("/health", probes.get(0).path);
+		assertEquals(200, probes.get(0).status);
+		assertEquals("UP and running", probes.get(0).text);
+		assertEquals("/index.html", probes.get(1).path);
+		assertNull(probes.get(1).text);
+		assertEquals(200, probes.get(2).status);
+		assertEquals("ok", probes.get(2).text);
+	}
+
+	@Test
+	public void waitsUntilTheApplicationResponds() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		String url = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				boolean ready = requests.incrementAndGet() > 2;
+				respond(exchange, ready ? 200 : 503, ready ? "status: UP" : "starting");
+			}
+		});
+
+		ReadinessCheck check = new ReadinessCheck("/health 200 UP");
+		long timeToReady = check.await(url + "/", 30000);
+
+		assertEquals(3, requests.get());
+		assertTrue(timeToReady > 0);
+	}
+
+	@Test
+	public void failsAfterTheTimeout() throws Exception {
+		String url = start(new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 503, "starting");
+			}
+		});
+
+		try {
+			new ReadinessCheck("/").await(url, 1000);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("returned HTTP 503"));
+		}
+	}
+
+	private String start(HttpHandler handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", handler);
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+}
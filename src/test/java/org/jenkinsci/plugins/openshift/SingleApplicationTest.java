@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import com.openshift.client.ApplicationScale;
+import com.openshift.client.IApplication;
+import com.openshift.client.IGearGroup;
+
+public class SingleApplicationTest {
+	private final IApplication listed = mock(IApplication.class);
+
+	private int loads;
+
+	private final SingleApplication.Loader loader = new SingleApplication.Loader() {
+		public IApplication load() {
+			loads++;
+			return listed;
+		}
+	};
+
+	@Test
+	public void answersBasicPropertiesFromTheResource() {
+		IApplication app = SingleApplication.create(data(), loader);
+
+		assertEquals("myapp", app.getName());
+		assertEquals("http://myapp-dev.rhcloud.com/", app.getApplicationUrl());
+		assertEquals("ssh://52a1@myapp-dev.rhcloud.com", app.getSshUrl());
+		assertEquals("ssh://52a1@myapp-dev.rhcloud.com/~/git/myapp.git/", app.getGitUrl());
+		assertEquals("git", app.getDeploymentType());
+		assertEquals(ApplicationScale.SCALE, app.getApplicationScale());
+		assertEquals(0, loads);
+	}
+
+	@Test
+	public void loadsTheListedApplicationOnceForOtherMethods() {
+		when(listed.getGearGroups()).thenReturn(Collections.<IGearGroup>emptyList());
+		when(listed.getDeploymentType()).thenReturn("binary");
+		IApplication app = SingleApplication.create(data(), loader);
+
+		assertEquals(0, app.getGearGroups().size());
+		app.getGearGroups();
+
+		assertEquals(1, loads);
+		// after loading, the listed application is up to date, e.g. after changing the deployment type
+		assertEquals("binary", app.getDeploymentType());
+	}
+
+	@Test
+	public void isEqualOnlyToItself() {
+		IApplication app = SingleApplication.create(data(), loader);
+
+		assertEquals(app, app);
+		assertFalse(app.equals(SingleApplication.create(data(), loader)));
+		assertEquals(app.hashCode(), app.hashCode());
+		assertEquals(0, loads);
+	}
+
+	private static JSONObject data() {
+		JSONObject data = new JSONObject();
+		data.put("name", "myapp");
+		data.put("id", "52a1");
+		data.put("app_url", "http://myapp-dev.rhcloud.com/");
+		data.put("ssh_url", "ssh://52a1@myapp-dev.rhcloud.com");
+		data.put("git_url", "ssh://52a1@myapp-dev.rhcloud.com/~/git/myapp.git/");
+		data.put("deployment_type", "git");
+		data.put("scalable", true);
+		return data;
+	}
+}
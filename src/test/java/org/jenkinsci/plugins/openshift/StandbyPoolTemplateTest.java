@@ -0,0 +1,30 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StandbyPoolTemplateTest {
+
+	@Test
+	public void matchesCartridgesInAnyOrder() {
+		StandbyPoolTemplate template = new StandbyPoolTemplate("server", "dev", "jbossews-2.0 mysql-5.5", null, false, 2);
+
+		assertTrue(template.matches("server", "dev", "mysql-5.5  jbossews-2.0", "", false));
+		assertFalse(template.matches("server", "dev", "jbossews-2.0", "", false));
+		assertFalse(template.matches("server", "dev", "jbossews-2.0 mysql-5.5", "medium", false));
+		assertFalse(template.matches("server", "dev", "jbossews-2.0 mysql-5.5", null, true));
+		assertFalse(template.matches("server", "prod", "jbossews-2.0 mysql-5.5", null, false));
+	}
+
+	@Test
+	public void standbyNamesAreValidApplicationNames() {
+		StandbyPoolTemplate template = new StandbyPoolTemplate("server", "dev", "jbossews-2.0", null, false, 2);
+
+		String name = template.getNamePrefix() + "abc123";
+		assertTrue(name.matches("[a-z0-9]{1,32}"));
+		assertTrue(template.getNamePattern().matcher(name).matches());
+		assertFalse(template.getNamePattern().matcher("myapp").matches());
+	}
+}
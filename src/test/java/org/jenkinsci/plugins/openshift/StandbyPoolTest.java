@@ -0,0 +1,27 @@
+package org.jenkinsci.plugins.openshift;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class StandbyPoolTest {
+
+	@Test
+	public void matchesClaimedApplicationsByTheRequestedName() {
+		Map<String, String> requestedNames = new HashMap<String, String>();
+		requestedNames.put("sb1a2b3cabc123", "pr12");
+		requestedNames.put("sb1a2b3cdef456", "myapp");
+
+		Pattern pattern = StandbyPool.withClaims(DeleteApplication.toPattern("pr*"), requestedNames);
+
+		assertTrue(pattern.matcher("pr13").matches());
+		assertTrue(pattern.matcher("sb1a2b3cabc123").matches());
+		assertFalse(pattern.matcher("sb1a2b3cdef456").matches());
+		assertFalse(pattern.matcher("myapp").matches());
+	}
+}